@@ -0,0 +1,149 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package de.undercouch.actson;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes the characters of a base64 string value (as specified in
+ * RFC 4648 with the standard alphabet) into a {@link ByteBuffer} while
+ * they are being parsed. See {@link JsonParser#decodeBase64(ByteBuffer)}.
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+final class Base64Decoder {
+  private static final String ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+  /**
+   * The 6-bit value of every ASCII character or -1 if the character is
+   * not part of the alphabet
+   */
+  private static final byte[] VALUES = new byte[128];
+  static {
+    Arrays.fill(VALUES, (byte)-1);
+    for (int i = 0; i < ALPHABET.length(); ++i) {
+      VALUES[ALPHABET.charAt(i)] = (byte)i;
+    }
+  }
+
+  /**
+   * The buffer the decoded bytes are written to
+   */
+  private ByteBuffer target;
+
+  /**
+   * Decoded bits that do not make up a complete byte yet
+   */
+  private int bits;
+
+  /**
+   * The number of bits in {@link #bits}
+   */
+  private int bitCount;
+
+  /**
+   * The number of characters decoded so far (including padding)
+   */
+  private int chars;
+
+  /**
+   * The number of padding characters decoded so far
+   */
+  private int padding;
+
+  /**
+   * Start decoding a new string value
+   * @param target the buffer the decoded bytes should be written to
+   */
+  void start(ByteBuffer target) {
+    setTarget(target);
+    bits = 0;
+    bitCount = 0;
+    chars = 0;
+    padding = 0;
+  }
+
+  /**
+   * Set the buffer the next decoded bytes should be written to
+   * @param target the buffer
+   */
+  void setTarget(ByteBuffer target) {
+    this.target = target;
+  }
+
+  /**
+   * @return true if there is no room for more bytes in the target buffer
+   */
+  boolean isFull() {
+    return !target.hasRemaining();
+  }
+
+  /**
+   * Decode a character of the string value
+   * @param c the character
+   * @return the number of bytes written to the target buffer (0 or 1) or
+   * -1 if the character is not allowed at this position
+   * @throws IllegalStateException if the target buffer is full
+   */
+  int decode(char c) {
+    if (!target.hasRemaining()) {
+      throw new IllegalStateException("Target buffer is full");
+    }
+    ++chars;
+    if (c == '=') {
+      ++padding;
+      return 0;
+    }
+    int v = (c < VALUES.length ? VALUES[c] : -1);
+    if (v < 0 || padding > 0) {
+      return -1;
+    }
+
+    // six bits and less than eight remaining bits make at most one byte
+    bits = (bits << 6) | v;
+    bitCount += 6;
+    if (bitCount < 8) {
+      return 0;
+    }
+    bitCount -= 8;
+    target.put((byte)(bits >> bitCount));
+    bits &= (1 << bitCount) - 1;
+    return 1;
+  }
+
+  /**
+   * Finish decoding at the end of the string value
+   * @return true if the string value was valid base64
+   */
+  boolean finish() {
+    target = null;
+    if (padding == 0) {
+      // a single character in the last group cannot make up a byte
+      return (chars & 3) != 1;
+    }
+    return padding <= 2 && (chars & 3) == 0;
+  }
+}
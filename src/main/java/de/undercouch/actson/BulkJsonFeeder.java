@@ -0,0 +1,72 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.nio.charset.Charset;
+
+/**
+ * <p>A {@link JsonFeeder} that gives the {@link JsonParser} direct access
+ * to its buffer of decoded characters.</p>
+ * <p>Instead of calling {@link #hasInput()} and {@link #nextInput()} for
+ * every single character, the parser calls {@link #hasInput()} once to fill
+ * the feeder's window, then walks the whole window in a tight loop and
+ * finally reports how many characters it has consumed through
+ * {@link #setWindowPosition(int)}.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public interface BulkJsonFeeder extends JsonFeeder {
+  /**
+   * Get the array holding the current window of decoded characters. The
+   * window starts at {@link #getWindowPosition()} (inclusive) and ends at
+   * {@link #getWindowLimit()} (exclusive). The contents are only valid
+   * after {@link #hasInput()} has returned <code>true</code> and until
+   * the next call to any other method of the feeder.
+   * @return the array holding the window
+   */
+  char[] getWindow();
+
+  /**
+   * @return the index of the next character in the window to be parsed
+   */
+  int getWindowPosition();
+
+  /**
+   * @return the index of the first character after the end of the window
+   */
+  int getWindowLimit();
+
+  /**
+   * Mark the characters in the window up to the given index as consumed
+   * @param position the index of the next character to be parsed (must be
+   * between {@link #getWindowPosition()} and {@link #getWindowLimit()})
+   */
+  void setWindowPosition(int position);
+
+  /**
+   * @return the charset the feeder uses to decode its input
+   */
+  Charset getCharset();
+}
@@ -0,0 +1,278 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.UnmappableCharacterException;
+
+/**
+ * <p>A {@link JsonFeeder} that does not copy its input. Buffers passed to
+ * {@link #feed(ByteBuffer)} or {@link #feed(byte[], int, int)} are decoded
+ * directly into the feeder's character window. This works for heap buffers
+ * as well as for direct buffers.</p>
+ * <p>The feeder keeps a reference to the buffer (or array) it has been fed
+ * and reports to be full (see {@link #isFull()}) until the parser has
+ * consumed it completely. The caller must not modify the buffer's contents
+ * before that, i.e. before {@link JsonParser#nextEvent()} has returned
+ * {@link JsonEvent#NEED_MORE_INPUT}. Only the few bytes of a character that
+ * is split between two buffers are copied.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class ByteBufferJsonFeeder implements BulkJsonFeeder {
+  private final CharBuffer charBuf;
+  private final CharsetDecoder decoder;
+
+  /**
+   * Bytes of an incomplete character at the end of a buffer and single
+   * bytes passed to {@link #feed(byte)}
+   */
+  private final ByteBuffer carry = ByteBuffer.allocate(16);
+
+  /**
+   * The buffer currently being decoded (null if there is none)
+   */
+  private ByteBuffer input;
+
+  private boolean done = false;
+
+  /**
+   * Constructs a feeder
+   * @param charset the charset that should be used to decode input data
+   */
+  public ByteBufferJsonFeeder(Charset charset) {
+    this(charset, 2048);
+  }
+
+  /**
+   * Constructs a feeder
+   * @param charset the charset that should be used to decode input data
+   * @param windowCapacity the maximum number of decoded characters the
+   * parser can process in one go
+   */
+  public ByteBufferJsonFeeder(Charset charset, int windowCapacity) {
+    charBuf = CharBuffer.allocate(windowCapacity);
+    charBuf.limit(0);
+    decoder = charset.newDecoder();
+  }
+
+  @Override
+  public void feed(byte b) {
+    if (isFull()) {
+      throw new IllegalStateException("JSON parser is full");
+    }
+    carry.put(b);
+  }
+
+  @Override
+  public int feed(byte[] buf) {
+    return feed(buf, 0, buf.length);
+  }
+
+  /**
+   * Provide more data to the {@link JsonParser}. The feeder keeps a
+   * reference to the given array and decodes directly from it. The array
+   * must not be modified until the parser has consumed it (see
+   * {@link ByteBufferJsonFeeder}).
+   * @param buf the byte array containing the data to consume
+   * @param offset the start offset in the byte array
+   * @param len the number of bytes to consume
+   * @return the number of bytes consumed (either <code>len</code> or 0 if
+   * the parser does not accept more input at the moment)
+   */
+  @Override
+  public int feed(byte[] buf, int offset, int len) {
+    return feed(ByteBuffer.wrap(buf, offset, len));
+  }
+
+  /**
+   * Provide more data to the {@link JsonParser}. The feeder keeps a
+   * reference to the given buffer's contents and decodes directly from it.
+   * The contents must not be modified until the parser has consumed them
+   * (see {@link ByteBufferJsonFeeder}). The buffer's position is advanced
+   * to its limit immediately.
+   * @param buf the buffer containing the data to consume
+   * @return the number of bytes consumed (either all remaining bytes or 0 if
+   * the parser does not accept more input at the moment)
+   */
+  @Override
+  public int feed(ByteBuffer buf) {
+    if (isFull()) {
+      return 0;
+    }
+    int n = buf.remaining();
+    if (n > 0) {
+      input = buf.duplicate();
+      buf.position(buf.limit());
+    }
+    return n;
+  }
+
+  @Override
+  public void done() {
+    done = true;
+  }
+
+  @Override
+  public void reset() {
+    charBuf.clear();
+    charBuf.limit(0);
+    carry.clear();
+    input = null;
+    decoder.reset();
+    done = false;
+  }
+
+  @Override
+  public boolean isFull() {
+    return input != null || !carry.hasRemaining();
+  }
+
+  @Override
+  public boolean hasInput() throws CharacterCodingException {
+    return fillBuffer();
+  }
+
+  @Override
+  public boolean isDone() throws CharacterCodingException {
+    return done && !hasInput();
+  }
+
+  @Override
+  public char nextInput() throws CharacterCodingException {
+    if (!hasInput()) {
+      throw new IllegalStateException("Not enough input data");
+    }
+    return charBuf.get();
+  }
+
+  @Override
+  public char[] getWindow() {
+    return charBuf.array();
+  }
+
+  @Override
+  public int getWindowPosition() {
+    return charBuf.position();
+  }
+
+  @Override
+  public int getWindowLimit() {
+    return charBuf.limit();
+  }
+
+  @Override
+  public void setWindowPosition(int position) {
+    charBuf.position(position);
+  }
+
+  @Override
+  public Charset getCharset() {
+    return decoder.charset();
+  }
+
+  /**
+   * Decode bytes from {@link #carry} and {@link #input} and fill
+   * {@link #charBuf}. This method is a no-op if {@link #charBuf} is not
+   * empty or if there are no bytes to decode.
+   * @return true if the buffer contains characters now, false if it's
+   * still empty
+   * @throws CharacterCodingException if the input data contains invalid
+   * characters
+   */
+  private boolean fillBuffer() throws CharacterCodingException {
+    if (charBuf.hasRemaining()) {
+      return true;
+    }
+
+    charBuf.clear();
+
+    // decode the bytes of an incomplete character first and complete it
+    // with bytes from the current input buffer
+    while (carry.position() > 0) {
+      if (input != null) {
+        int n = Math.min(input.remaining(), carry.remaining());
+        int oldLimit = input.limit();
+        input.limit(input.position() + n);
+        carry.put(input);
+        input.limit(oldLimit);
+        releaseInput();
+      }
+      carry.flip();
+      CoderResult result = decoder.decode(carry, charBuf,
+          done && input == null);
+      checkResult(result);
+      carry.compact();
+      if (result.isOverflow() || input == null || !carry.hasRemaining()) {
+        break;
+      }
+    }
+
+    // decode directly from the input buffer
+    if (input != null && carry.position() == 0 && charBuf.hasRemaining()) {
+      CoderResult result = decoder.decode(input, charBuf, done);
+      checkResult(result);
+      if (result.isUnderflow() && input.hasRemaining()) {
+        // incomplete character at the end of the buffer
+        carry.put(input);
+      }
+      releaseInput();
+    }
+
+    charBuf.flip();
+    return charBuf.hasRemaining();
+  }
+
+  /**
+   * Forget the current input buffer if it has been consumed completely
+   */
+  private void releaseInput() {
+    if (!input.hasRemaining()) {
+      input = null;
+    }
+  }
+
+  /**
+   * Check the result of a decoding operation
+   * @param result the result
+   * @throws CharacterCodingException if the input data contains invalid
+   * characters
+   */
+  private static void checkResult(CoderResult result)
+      throws CharacterCodingException {
+    if (result.isMalformed()) {
+      throw new MalformedInputException(result.length());
+    }
+    if (result.isUnmappable()) {
+      throw new UnmappableCharacterException(result.length());
+    }
+  }
+}
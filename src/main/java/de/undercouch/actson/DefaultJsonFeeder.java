@@ -38,7 +38,7 @@ import java.nio.charset.UnmappableCharacterException;
  * @author Michel Kraemer
  * @since 1.0.0
  */
-public class DefaultJsonFeeder implements JsonFeeder {
+public class DefaultJsonFeeder implements BulkJsonFeeder {
   private final ByteBuffer byteBuf;
   private final CharBuffer charBuf;
   private final CharsetDecoder decoder;
@@ -93,11 +93,30 @@ public class DefaultJsonFeeder implements JsonFeeder {
     return i - offset;
   }
 
+  @Override
+  public int feed(ByteBuffer buf) {
+    int n = Math.min(buf.remaining(), byteBuf.remaining());
+    int oldLimit = buf.limit();
+    buf.limit(buf.position() + n);
+    byteBuf.put(buf);
+    buf.limit(oldLimit);
+    return n;
+  }
+
   @Override
   public void done() {
     done = true;
   }
 
+  @Override
+  public void reset() {
+    byteBuf.clear();
+    charBuf.clear();
+    charBuf.limit(0);
+    decoder.reset();
+    done = false;
+  }
+
   @Override
   public boolean isFull() {
     return !byteBuf.hasRemaining();
@@ -121,6 +140,31 @@ public class DefaultJsonFeeder implements JsonFeeder {
     return charBuf.get();
   }
 
+  @Override
+  public char[] getWindow() {
+    return charBuf.array();
+  }
+
+  @Override
+  public int getWindowPosition() {
+    return charBuf.position();
+  }
+
+  @Override
+  public int getWindowLimit() {
+    return charBuf.limit();
+  }
+
+  @Override
+  public void setWindowPosition(int position) {
+    charBuf.position(position);
+  }
+
+  @Override
+  public Charset getCharset() {
+    return decoder.charset();
+  }
+
   /**
    * Decode bytes from {@link #byteBuf} and fill {@link #charBuf}. This method
    * is a no-op if {@link #charBuf} is not empty or if there are no bytes to
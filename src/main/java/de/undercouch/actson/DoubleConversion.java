@@ -0,0 +1,239 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.math.BigInteger;
+
+/**
+ * <p>Converts a decimal mantissa and exponent to the closest
+ * <code>double</code> using the Eisel-Lemire algorithm.</p>
+ * <p>The algorithm multiplies the mantissa by a 128-bit approximation of
+ * the power of ten and can prove in almost all cases that the result is
+ * correctly rounded. In the rare cases where it cannot (e.g. numbers that
+ * lie exactly halfway between two doubles), it gives up and the caller has
+ * to fall back to a slower method such as {@link Double#parseDouble(String)}.
+ * See Daniel Lemire, "Number Parsing at a Gigabyte per Second", Software:
+ * Practice and Experience 51 (8), 2021.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+final class DoubleConversion {
+  /**
+   * The smallest power of ten in the table
+   */
+  private static final int MIN_EXP10 = -348;
+
+  /**
+   * The largest power of ten in the table
+   */
+  private static final int MAX_EXP10 = 347;
+
+  /**
+   * The upper 64 bits of the 128-bit mantissas of the powers of ten between
+   * {@link #MIN_EXP10} and {@link #MAX_EXP10} (normalized so that the most
+   * significant bit is set, rounded down)
+   */
+  private static final long[] POW10_HI = new long[MAX_EXP10 - MIN_EXP10 + 1];
+
+  /**
+   * The lower 64 bits of the 128-bit mantissas of the powers of ten
+   */
+  private static final long[] POW10_LO = new long[MAX_EXP10 - MIN_EXP10 + 1];
+
+  /**
+   * Exactly representable powers of ten
+   */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+    1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  static {
+    BigInteger mask64 = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    // positive powers: shift 10^q so that it has exactly 128 bits
+    BigInteger p = BigInteger.ONE;
+    for (int q = 0; q <= MAX_EXP10; ++q) {
+      int shift = 128 - p.bitLength();
+      BigInteger m = shift >= 0 ? p.shiftLeft(shift) : p.shiftRight(-shift);
+      POW10_HI[q - MIN_EXP10] = m.shiftRight(64).longValue();
+      POW10_LO[q - MIN_EXP10] = m.and(mask64).longValue();
+      p = p.multiply(BigInteger.TEN);
+    }
+
+    // negative powers: 2^k / 10^-q with k chosen so that the result has
+    // exactly 128 bits
+    p = BigInteger.TEN;
+    for (int q = -1; q >= MIN_EXP10; --q) {
+      BigInteger m = BigInteger.ONE.shiftLeft(127 + p.bitLength()).divide(p);
+      POW10_HI[q - MIN_EXP10] = m.shiftRight(64).longValue();
+      POW10_LO[q - MIN_EXP10] = m.and(mask64).longValue();
+      p = p.multiply(BigInteger.TEN);
+    }
+  }
+
+  private DoubleConversion() {
+    // hidden constructor
+  }
+
+  /**
+   * Convert the mantissa and exponent accumulated by the {@link JsonParser}
+   * to the closest <code>double</code>
+   * @param mantissa the decimal mantissa (an unsigned 64-bit integer)
+   * @param exp10 the decimal exponent
+   * @param negative true if the result should be negative
+   * @param truncated true if the mantissa does not contain all digits of
+   * the number (i.e. the exact value lies between
+   * <code>mantissa</code> and <code>mantissa + 1</code>)
+   * @return the correctly rounded result or {@link Double#NaN} if it
+   * cannot be calculated from the mantissa and exponent
+   */
+  static double toDouble(long mantissa, int exp10, boolean negative,
+      boolean truncated) {
+    if (truncated) {
+      // if both ends of the interval round to the same double, the result
+      // is correct
+      double d = toDouble(mantissa, exp10, negative);
+      if (!Double.isNaN(d) && d == toDouble(mantissa + 1, exp10, negative)) {
+        return d;
+      }
+      return Double.NaN;
+    }
+    if (mantissa > 0 && mantissa <= (1L << 53) &&
+        exp10 >= -22 && exp10 <= 22) {
+      // both the mantissa and the power of ten are exactly representable,
+      // so a single operation yields the correctly rounded result
+      double d = mantissa;
+      if (exp10 < 0) {
+        d /= POWERS_OF_TEN[-exp10];
+      } else {
+        d *= POWERS_OF_TEN[exp10];
+      }
+      return negative ? -d : d;
+    }
+    return toDouble(mantissa, exp10, negative);
+  }
+
+  /**
+   * Calculate <code>mantissa * 10^exp10</code> and round it to the closest
+   * <code>double</code>
+   * @param mantissa the decimal mantissa (an unsigned 64-bit integer)
+   * @param exp10 the decimal exponent
+   * @param negative true if the result should be negative
+   * @return the correctly rounded result or {@link Double#NaN} if the
+   * algorithm cannot decide how to round the result
+   */
+  static double toDouble(long mantissa, int exp10, boolean negative) {
+    if (mantissa == 0) {
+      return negative ? -0.0 : 0.0;
+    }
+    if (exp10 < MIN_EXP10 || exp10 > MAX_EXP10) {
+      return Double.NaN;
+    }
+
+    // normalize the mantissa
+    int clz = Long.numberOfLeadingZeros(mantissa);
+    long man = mantissa << clz;
+    long retExp2 = ((217706L * exp10) >> 16) + 64 + 1023 - clz;
+
+    // multiply by the upper half of the power of ten
+    int i = exp10 - MIN_EXP10;
+    long xHi = unsignedMultiplyHigh(man, POW10_HI[i]);
+    long xLo = man * POW10_HI[i];
+
+    // if the result is not precise enough, take the lower half into account
+    if ((xHi & 0x1FF) == 0x1FF && unsignedLessThan(xLo + man, man)) {
+      long yHi = unsignedMultiplyHigh(man, POW10_LO[i]);
+      long yLo = man * POW10_LO[i];
+      long mergedHi = xHi;
+      long mergedLo = xLo + yHi;
+      if (unsignedLessThan(mergedLo, xLo)) {
+        ++mergedHi;
+      }
+      if ((mergedHi & 0x1FF) == 0x1FF && mergedLo + 1 == 0 &&
+          unsignedLessThan(yLo + man, man)) {
+        return Double.NaN;
+      }
+      xHi = mergedHi;
+      xLo = mergedLo;
+    }
+
+    // shift the result to 54 bits
+    long msb = xHi >>> 63;
+    long retMantissa = xHi >>> (msb + 9);
+    retExp2 -= 1 ^ msb;
+
+    // the result lies halfway between two doubles
+    if (xLo == 0 && (xHi & 0x1FF) == 0 && (retMantissa & 3) == 1) {
+      return Double.NaN;
+    }
+
+    // round to 53 bits
+    retMantissa += retMantissa & 1;
+    retMantissa >>>= 1;
+    if ((retMantissa >>> 53) > 0) {
+      retMantissa >>>= 1;
+      ++retExp2;
+    }
+
+    // subnormal numbers, infinity and NaN are not handled here
+    if (retExp2 <= 0 || retExp2 >= 0x7FF) {
+      return Double.NaN;
+    }
+
+    long bits = (retExp2 << 52) | (retMantissa & 0x000FFFFFFFFFFFFFL);
+    if (negative) {
+      bits |= 0x8000000000000000L;
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
+  /**
+   * Calculate the upper 64 bits of the 128-bit product of two unsigned
+   * 64-bit integers
+   * @param x the first factor
+   * @param y the second factor
+   * @return the upper 64 bits of the product
+   */
+  private static long unsignedMultiplyHigh(long x, long y) {
+    long x0 = x & 0xFFFFFFFFL;
+    long x1 = x >>> 32;
+    long y0 = y & 0xFFFFFFFFL;
+    long y1 = y >>> 32;
+    long t = x1 * y0 + ((x0 * y0) >>> 32);
+    long w1 = (t & 0xFFFFFFFFL) + x0 * y1;
+    return x1 * y1 + (t >>> 32) + (w1 >>> 32);
+  }
+
+  /**
+   * Compare two unsigned 64-bit integers
+   * @param a the first integer
+   * @param b the second integer
+   * @return true if <code>a</code> is less than <code>b</code>
+   */
+  private static boolean unsignedLessThan(long a, long b) {
+    return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+  }
+}
@@ -0,0 +1,148 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+/**
+ * <p>An immutable set of known field names. Pass it to
+ * {@link JsonParser#getCurrentFieldId(FieldSet)} to get the ID of the
+ * current field name without creating a string.</p>
+ * <p>The ID of a field name is its index in the array passed to
+ * {@link #of(String...)}. This allows you to dispatch on field names in a
+ * <code>switch</code> statement:</p>
+ * <pre>
+ * FieldSet fields = FieldSet.of("id", "name");
+ * ...
+ * switch (parser.getCurrentFieldId(fields)) {
+ *   case 0: // id
+ *   case 1: // name
+ *   default: // unknown field
+ * }
+ * </pre>
+ * <p>Instances of this class are thread-safe and can be shared between
+ * parsers.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public final class FieldSet {
+  private final String[] names;
+  private final String[] table;
+  private final int[] hashes;
+  private final int[] ids;
+  private final int mask;
+
+  private FieldSet(String[] names) {
+    this.names = names.clone();
+    int capacity = Integer.highestOneBit(Math.max(names.length, 4) - 1) << 2;
+    table = new String[capacity];
+    hashes = new int[capacity];
+    ids = new int[capacity];
+    mask = capacity - 1;
+
+    for (int id = 0; id < this.names.length; ++id) {
+      String name = this.names[id];
+      if (name == null) {
+        throw new NullPointerException("Field name must not be null");
+      }
+      int hash = name.hashCode();
+      int i = slot(hash);
+      while (table[i] != null) {
+        if (table[i].equals(name)) {
+          throw new IllegalArgumentException("Duplicate field name: " + name);
+        }
+        i = (i + 1) & mask;
+      }
+      table[i] = name;
+      hashes[i] = hash;
+      ids[i] = id;
+    }
+  }
+
+  /**
+   * Create a set of field names
+   * @param names the field names. Their indexes in this array will be
+   * their IDs.
+   * @return the set
+   * @throws IllegalArgumentException if the array contains a field name
+   * more than once
+   */
+  public static FieldSet of(String... names) {
+    return new FieldSet(names);
+  }
+
+  /**
+   * @return the number of field names in this set
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Get a field name by its ID
+   * @param id the ID
+   * @return the field name
+   * @throws IndexOutOfBoundsException if there is no field with this ID
+   */
+  public String getName(int id) {
+    return names[id];
+  }
+
+  /**
+   * Get the ID of a field name
+   * @param name the field name
+   * @return the ID or -1 if the set does not contain the field name
+   */
+  public int indexOf(CharSequence name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); ++i) {
+      hash = 31 * hash + name.charAt(i);
+    }
+    return indexOf(name, hash);
+  }
+
+  /**
+   * Get the ID of a field name whose hash code is already known
+   * @param name the field name
+   * @param hash the hash code of the field name (calculated as in
+   * {@link String#hashCode()})
+   * @return the ID or -1 if the set does not contain the field name
+   */
+  int indexOf(CharSequence name, int hash) {
+    int len = name.length();
+    int i = slot(hash);
+    String s;
+    while ((s = table[i]) != null) {
+      if (hashes[i] == hash && s.length() == len &&
+          SymbolTable.equals(s, name, len)) {
+        return ids[i];
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private int slot(int hash) {
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
@@ -75,7 +75,8 @@ public interface JsonEvent {
 
   /**
    * An integer value. Call {@link JsonParser#getCurrentInt()}
-   * to get the value.
+   * to get the value. Use {@link JsonParser#getCurrentNumberType()} to
+   * check if the value fits into an integer.
    */
   public static final int VALUE_INT = 7;
 
@@ -100,6 +101,23 @@ public interface JsonEvent {
    */
   public static final int VALUE_NULL = 11;
 
+  /**
+   * The end of a top-level value if the parser accepts more than one
+   * top-level value (see {@link JsonParser#setFraming(int)}).
+   * @since 1.3.0
+   */
+  public static final int END_DOCUMENT = 12;
+
+  /**
+   * A part of a long string value. The parser returns this event instead of
+   * collecting the whole string if a threshold has been set with
+   * {@link JsonParser#setStringPartThreshold(int)}. Call
+   * {@link JsonParser#getCurrentString()} to get the part. The last part
+   * is returned with {@link #VALUE_STRING}.
+   * @since 1.3.0
+   */
+  public static final int VALUE_STRING_PART = 13;
+
   /**
    * The end of the JSON text
    */
@@ -0,0 +1,323 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.util.Arrays;
+
+/**
+ * <p>A reusable batch of JSON events filled by
+ * {@link JsonParser#nextEvents(JsonEventBatch)}. In addition to the events,
+ * the batch contains the values of all field names, strings and numbers.
+ * The characters of these values are stored one after the other in a
+ * shared character array. For each event, the batch records the offset and
+ * length of its value in this array.</p>
+ * <p>Process a batch in a tight loop:</p>
+ * <pre>
+ * int[] events = batch.getEvents();
+ * for (int i = 0; i &lt; batch.size(); ++i) {
+ *   if (events[i] == JsonEvent.FIELD_NAME) {
+ *     ... batch.getChars(), batch.getValueOffset(i), batch.getValueLength(i)
+ *   }
+ * }
+ * </pre>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public final class JsonEventBatch {
+  /**
+   * Flag indicating that the parser has accumulated the digits of a number
+   */
+  private static final byte NUMBER = 1;
+
+  /**
+   * Flag indicating that a number is negative
+   */
+  private static final byte NEGATIVE = 2;
+
+  /**
+   * Flag indicating that the mantissa of a number does not contain all
+   * of its digits
+   */
+  private static final byte TRUNCATED = 4;
+
+  private final int[] events;
+  private final int[] offsets;
+  private final int[] lengths;
+
+  /**
+   * The decimal mantissas of the numbers as accumulated by the parser
+   */
+  private final long[] mantissas;
+
+  /**
+   * The decimal exponents belonging to {@link #mantissas}
+   */
+  private final int[] exponents;
+
+  /**
+   * Flags describing the numbers (see {@link #NUMBER})
+   */
+  private final byte[] numberFlags;
+  private char[] chars;
+  private int size;
+  private int charCount;
+
+  /**
+   * Create a new batch
+   * @param capacity the maximum number of events in the batch
+   */
+  public JsonEventBatch(int capacity) {
+    this(capacity, capacity * 16);
+  }
+
+  /**
+   * Create a new batch
+   * @param capacity the maximum number of events in the batch
+   * @param charCapacity the initial size of the array holding the values
+   * of the events (the array grows if necessary)
+   */
+  public JsonEventBatch(int capacity, int charCapacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be greater than 0");
+    }
+    events = new int[capacity];
+    offsets = new int[capacity];
+    lengths = new int[capacity];
+    mantissas = new long[capacity];
+    exponents = new int[capacity];
+    numberFlags = new byte[capacity];
+    chars = new char[Math.max(charCapacity, 16)];
+  }
+
+  /**
+   * Remove all events from the batch
+   */
+  public void clear() {
+    size = 0;
+    charCount = 0;
+  }
+
+  /**
+   * @return the maximum number of events in the batch
+   */
+  public int capacity() {
+    return events.length;
+  }
+
+  /**
+   * @return the number of events in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return true if the batch cannot hold any more events
+   */
+  public boolean isFull() {
+    return size == events.length;
+  }
+
+  /**
+   * Get the array containing the events. Only the first {@link #size()}
+   * elements are valid.
+   * @return the events
+   */
+  public int[] getEvents() {
+    return events;
+  }
+
+  /**
+   * Get an event
+   * @param i the index of the event
+   * @return the event
+   */
+  public int getEvent(int i) {
+    checkIndex(i);
+    return events[i];
+  }
+
+  /**
+   * Get the array containing the values of all events. Use
+   * {@link #getValueOffset(int)} and {@link #getValueLength(int)} to find
+   * the value of a certain event.
+   * @return the characters of all values
+   */
+  public char[] getChars() {
+    return chars;
+  }
+
+  /**
+   * Get the offset of an event's value in the array returned by
+   * {@link #getChars()}
+   * @param i the index of the event
+   * @return the offset
+   */
+  public int getValueOffset(int i) {
+    checkIndex(i);
+    return offsets[i];
+  }
+
+  /**
+   * Get the length of an event's value
+   * @param i the index of the event
+   * @return the length (0 if the event does not have a value)
+   */
+  public int getValueLength(int i) {
+    checkIndex(i);
+    return lengths[i];
+  }
+
+  /**
+   * Get the value of a {@link JsonEvent#FIELD_NAME} or a
+   * {@link JsonEvent#VALUE_STRING} event as a string. This method
+   * allocates a new string.
+   * @param i the index of the event
+   * @return the string
+   */
+  public String getString(int i) {
+    checkIndex(i);
+    return new String(chars, offsets[i], lengths[i]);
+  }
+
+  /**
+   * Get the value of a {@link JsonEvent#VALUE_INT} event. This method does
+   * not allocate memory unless the value has more than 18 digits.
+   * @param i the index of the event
+   * @return the value
+   * @throws NumberFormatException if the value does not fit into a long
+   */
+  public long getLong(int i) {
+    checkIndex(i);
+    int off = offsets[i];
+    int len = lengths[i];
+    int end = off + len;
+    boolean negative = len > 0 && chars[off] == '-';
+    int p = negative ? off + 1 : off;
+    if (p == end || end - p > 18) {
+      return Long.parseLong(getString(i));
+    }
+    long r = 0;
+    for (; p < end; ++p) {
+      int d = chars[p] - '0';
+      if (d < 0 || d > 9) {
+        throw new NumberFormatException("For input string: \"" +
+            getString(i) + "\"");
+      }
+      r = r * 10 + d;
+    }
+    return negative ? -r : r;
+  }
+
+  /**
+   * Get the value of a {@link JsonEvent#VALUE_INT} event as an integer
+   * @param i the index of the event
+   * @return the value
+   * @throws NumberFormatException if the value does not fit into an integer
+   */
+  public int getInt(int i) {
+    long l = getLong(i);
+    if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+      throw new NumberFormatException("For input string: \"" +
+          getString(i) + "\"");
+    }
+    return (int)l;
+  }
+
+  /**
+   * Get the value of a {@link JsonEvent#VALUE_DOUBLE} or a
+   * {@link JsonEvent#VALUE_INT} event as a double. For the vast majority
+   * of numbers, the value is calculated from the digits the parser has
+   * accumulated without allocating memory (see {@link DoubleConversion}).
+   * @param i the index of the event
+   * @return the value
+   */
+  public double getDouble(int i) {
+    checkIndex(i);
+    byte flags = numberFlags[i];
+    if ((flags & NUMBER) != 0) {
+      double d = DoubleConversion.toDouble(mantissas[i], exponents[i],
+          (flags & NEGATIVE) != 0, (flags & TRUNCATED) != 0);
+      if (!Double.isNaN(d)) {
+        return d;
+      }
+    }
+    return Double.parseDouble(getString(i));
+  }
+
+  /**
+   * Add an event to the batch
+   * @param event the event
+   * @param value the event's value (may be null)
+   */
+  void add(int event, CharSequence value) {
+    events[size] = event;
+    numberFlags[size] = 0;
+    offsets[size] = charCount;
+    if (value == null) {
+      lengths[size] = 0;
+    } else {
+      int len = value.length();
+      if (charCount + len > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(chars.length * 2,
+            charCount + len));
+      }
+      if (value instanceof StringBuilder) {
+        ((StringBuilder)value).getChars(0, len, chars, charCount);
+      } else {
+        for (int j = 0; j < len; ++j) {
+          chars[charCount + j] = value.charAt(j);
+        }
+      }
+      lengths[size] = len;
+      charCount += len;
+    }
+    ++size;
+  }
+
+  /**
+   * Record the mantissa and exponent of the number that has just been
+   * added to the batch
+   * @param mantissa the decimal mantissa (an unsigned 64-bit integer)
+   * @param exp10 the decimal exponent
+   * @param negative true if the number is negative
+   * @param truncated true if the mantissa does not contain all digits of
+   * the number
+   */
+  void setNumber(long mantissa, int exp10, boolean negative,
+      boolean truncated) {
+    int i = size - 1;
+    mantissas[i] = mantissa;
+    exponents[i] = exp10;
+    numberFlags[i] = (byte)(NUMBER | (negative ? NEGATIVE : 0) |
+        (truncated ? TRUNCATED : 0));
+  }
+
+  private void checkIndex(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+  }
+}
@@ -23,6 +23,7 @@
 
 package de.undercouch.actson;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 
 /**
@@ -74,6 +75,19 @@ public interface JsonFeeder {
    */
   int feed(byte[] buf, int offset, int len);
 
+  /**
+   * Provide more data to the {@link JsonParser}. The method will consume as
+   * many bytes from the given buffer as possible, either until the buffer has
+   * no bytes remaining or until the feeder is full (see {@link #isFull()}).
+   * The buffer's position will be advanced by the number of bytes consumed.
+   * The buffer may be a heap buffer or a direct buffer.
+   * @param buf the buffer containing the data to consume
+   * @return the number of bytes consumed (can be 0 if the parser does not accept
+   * more input at the moment, see {@link #isFull()})
+   * @since 1.3.0
+   */
+  int feed(ByteBuffer buf);
+
   /**
    * Checks if the parser accepts more input at the moment. If it doesn't,
    * you have to call {@link JsonParser#nextEvent()} until it returns
@@ -89,6 +103,15 @@ public interface JsonFeeder {
    */
   void done();
 
+  /**
+   * Reset the feeder to its initial state so that it can provide input for
+   * another JSON text. Input that has not been consumed yet is discarded.
+   * Internal buffers are kept. This method is called by
+   * {@link JsonParser#reset()}.
+   * @since 1.3.0
+   */
+  void reset();
+
   /**
    * Determine if the feeder has input data that can be parsed
    * @return true if the feeder has more input to be parsed
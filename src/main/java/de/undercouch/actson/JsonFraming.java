@@ -0,0 +1,70 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+/**
+ * Specifies how the top-level values of a JSON text are framed. Use
+ * {@link JsonParser#setFraming(int)} to parse more than one top-level
+ * value with the same parser.
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public interface JsonFraming {
+  /**
+   * The JSON text consists of exactly one top-level value. This is the
+   * default.
+   */
+  public static final int SINGLE = 0;
+
+  /**
+   * The JSON text consists of any number of top-level values separated by
+   * line breaks (JSON Lines or newline-delimited JSON). The parser returns
+   * {@link JsonEvent#END_DOCUMENT} after each value. Empty lines are
+   * ignored.
+   */
+  public static final int LINE_DELIMITED = 1;
+
+  /**
+   * The JSON text consists of any number of top-level values that follow
+   * each other directly or are separated by whitespace. Only two numbers
+   * following each other have to be separated by whitespace. The parser
+   * returns {@link JsonEvent#END_DOCUMENT} after each value.
+   */
+  public static final int CONCATENATED = 2;
+
+  /**
+   * The JSON text is a JSON text sequence according to RFC 7464. Each
+   * value is preceded by a record separator character (<code>0x1E</code>).
+   * Top-level numbers, <code>true</code>, <code>false</code>, and
+   * <code>null</code> have to be followed by whitespace, otherwise they
+   * are considered truncated. Empty texts are ignored. The parser returns
+   * {@link JsonEvent#END_DOCUMENT} after each value. For a malformed or
+   * truncated text, it returns {@link JsonEvent#ERROR}, drops the rest of
+   * the text, and continues with the next one (RFC 7464, section 2.3). In
+   * contrast to the other framings, {@link JsonEvent#ERROR} is therefore
+   * not final.
+   */
+  public static final int TEXT_SEQUENCE = 3;
+}
@@ -0,0 +1,64 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+/**
+ * Possible types of the current number returned by
+ * {@link JsonParser#getCurrentNumberType()}
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public interface JsonNumberType {
+  /**
+   * The current value is not a number.
+   */
+  public static final int NONE = 0;
+
+  /**
+   * An integer that fits into an <code>int</code>. Call
+   * {@link JsonParser#getCurrentInt()} to get the value.
+   */
+  public static final int INT = 1;
+
+  /**
+   * An integer that fits into a <code>long</code> but not into an
+   * <code>int</code>. Call {@link JsonParser#getCurrentLong()} to get
+   * the value.
+   */
+  public static final int LONG = 2;
+
+  /**
+   * An integer that does not fit into a <code>long</code>. Call
+   * {@link JsonParser#getCurrentBigInteger()} to get the value.
+   */
+  public static final int BIG_INTEGER = 3;
+
+  /**
+   * A number with a fraction or an exponent. Call
+   * {@link JsonParser#getCurrentDouble()} or
+   * {@link JsonParser#getCurrentBigDecimal()} to get the value.
+   */
+  public static final int DOUBLE = 4;
+}
@@ -24,6 +24,10 @@
 
 package de.undercouch.actson;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -40,6 +44,12 @@ import java.util.Arrays;
 public class JsonParser {
   private static final byte __ = -1; // the universal error code
 
+  /**
+   * The character that precedes each value in a JSON text sequence
+   * (see {@link JsonFraming#TEXT_SEQUENCE})
+   */
+  private static final char RECORD_SEPARATOR = 0x1E;
+
   /**
    * Characters are mapped into these 31 character classes. This allows for
    * a significant reduction in the size of the state transition table.
@@ -208,23 +218,320 @@ public class JsonParser {
    */
   private byte state;
 
+  /**
+   * How the top-level values of the JSON text are framed
+   * (see {@link JsonFraming})
+   */
+  private int framing = JsonFraming.SINGLE;
+
+  /**
+   * True if a top-level value has been completed and the next call to
+   * {@link #nextEvent()} should return {@link JsonEvent#END_DOCUMENT}
+   */
+  private boolean documentEnded;
+
+  /**
+   * The event of a top-level literal in a JSON text sequence that will be
+   * returned as soon as the literal has been followed by whitespace
+   * ({@link JsonEvent#NEED_MORE_INPUT} if there is no such literal)
+   */
+  private int pendingLiteral = JsonEvent.NEED_MORE_INPUT;
+
+  /**
+   * A character that has ended a top-level number in a concatenated JSON
+   * text and that has to be parsed again as the start of the next value
+   * (0 if there is no such character)
+   */
+  private char pushedBackChar;
+
+  /**
+   * True if the parser drops the rest of a malformed text of a JSON text
+   * sequence and looks for the next record separator
+   */
+  private boolean droppingText;
+
+  /**
+   * True if a record separator has truncated a text of a JSON text
+   * sequence, so that the next text starts right after it
+   */
+  private boolean nextTextStarted;
+
   /**
    * Collects all characters if the current state is ST (String),
    * IN (Integer), FR (Fraction) or the like
    */
-  private StringBuilder currentValue = new StringBuilder(128);
+  private StringBuilder currentValue =
+      new StringBuilder(INITIAL_VALUE_CAPACITY);
+
+  /**
+   * The initial capacity of {@link #currentValue}
+   */
+  private static final int INITIAL_VALUE_CAPACITY = 128;
+
+  /**
+   * The maximum capacity of {@link #currentValue} kept by {@link #reset()}
+   */
+  private static final int MAX_RETAINED_VALUE_CAPACITY = 64 * 1024;
+
+  /**
+   * The first four bytes of a checkpoint (see {@link #checkpoint()})
+   */
+  private static final int CHECKPOINT_MAGIC = 0x4A534350;
+
+  /**
+   * The version of the format written by {@link #checkpoint()}
+   */
+  private static final int CHECKPOINT_VERSION = 1;
+
+  /**
+   * The maximum number of characters of a string value collected in
+   * {@link #currentValue} before {@link JsonEvent#VALUE_STRING_PART} is
+   * produced
+   */
+  private int stringPartThreshold = Integer.MAX_VALUE;
+
+  /**
+   * True if the last event was {@link JsonEvent#VALUE_STRING_PART} and
+   * {@link #currentValue} has to be cleared before parsing continues
+   */
+  private boolean stringPartReturned;
+
+  /**
+   * Decodes base64 string values (see {@link #decodeBase64(ByteBuffer)}).
+   * Created on demand.
+   */
+  private Base64Decoder base64Decoder;
+
+  /**
+   * True if the next string value should be decoded with
+   * {@link #base64Decoder}
+   */
+  private boolean base64Requested;
+
+  /**
+   * True if the current string value is being decoded with
+   * {@link #base64Decoder}
+   */
+  private boolean base64Active;
+
+  /**
+   * A read-only view on {@link #currentValue}
+   */
+  private final CharSequence currentValueView = new CurrentValueView();
+
+  /**
+   * The maximum number of significant digits stored in
+   * {@link #numberMantissa}. 19 digits always fit into an unsigned
+   * 64-bit integer.
+   */
+  private static final int MAX_MANTISSA_DIGITS = 19;
+
+  /**
+   * Explicit exponents are not accumulated beyond this value. Any number
+   * with such an exponent is either infinite or zero anyway.
+   */
+  private static final int MAX_EXPONENT = 100000;
+
+  /**
+   * True if {@link #currentValue} contains a number
+   */
+  private boolean currentIsNumber;
+
+  /**
+   * True if the current number is negative
+   */
+  private boolean numberNegative;
+
+  /**
+   * The first (up to {@link #MAX_MANTISSA_DIGITS}) significant digits of
+   * the current number as an unsigned integer
+   */
+  private long numberMantissa;
+
+  /**
+   * The number of significant digits in the current number, including
+   * those that did not fit into {@link #numberMantissa}
+   */
+  private int numberDigits;
+
+  /**
+   * The power of ten {@link #numberMantissa} has to be multiplied with
+   * (not including the explicit exponent)
+   */
+  private int numberScale;
+
+  /**
+   * True if at least one non-zero digit did not fit into
+   * {@link #numberMantissa}
+   */
+  private boolean numberTruncated;
+
+  /**
+   * True if the current number has neither a fraction nor an exponent
+   */
+  private boolean numberInteger;
+
+  /**
+   * The absolute value of the current number's explicit exponent
+   */
+  private int numberExponent;
+
+  /**
+   * True if the current number's explicit exponent is negative
+   */
+  private boolean numberExponentNegative;
+
+  /**
+   * The value of the current <code>&#92;uXXXX</code> escape sequence
+   */
+  private int unicodeEscape;
+
+  /**
+   * Canonical instances of field names (null if field names should not
+   * be canonicalized)
+   */
+  private SymbolTable symbolTable;
+
+  /**
+   * True if the current string is a field name. {@link #currentHash} is
+   * only updated for field names.
+   */
+  private boolean currentIsFieldName;
+
+  /**
+   * The hash of the current field name (calculated incrementally while
+   * parsing as in {@link String#hashCode()})
+   */
+  private int currentHash;
+
+  /**
+   * The canonical instance of the current field name or null if there
+   * is none
+   */
+  private String currentSymbol;
 
   /**
    * The number of characters processed by the JSON parser
    * @since 1.1.0
    */
-  private int parsedCharacterCount = 0;
+  private long parsedCharacterCount = 0;
+
+  /**
+   * The difference between the number of bytes and the number of
+   * characters processed so far. In UTF-8 mode, this is the number of bytes
+   * that did not produce a character of their own. Otherwise, it is
+   * calculated from the characters' lengths in UTF-8.
+   */
+  private long extraBytes = 0;
+
+  /**
+   * The position where the current string, number or literal started
+   * (in units of {@link #parsedCharacterCount})
+   */
+  private long tokenStart;
+
+  /**
+   * The value of {@link #extraBytes} at {@link #tokenStart}
+   */
+  private long tokenStartExtra;
+
+  /**
+   * The start and end positions of the token producing {@link #event1}
+   * together with the corresponding values of {@link #extraBytes}
+   */
+  private long event1Start;
+  private long event1StartExtra;
+  private long event1End;
+  private long event1EndExtra;
+
+  /**
+   * The start and end positions of the token producing {@link #event2}
+   */
+  private long event2Start;
+  private long event2StartExtra;
+  private long event2End;
+  private long event2EndExtra;
+
+  /**
+   * The start and end positions of the token producing the event that
+   * was returned by {@link #nextEvent()}
+   */
+  private long currentStart;
+  private long currentStartExtra;
+  private long currentEnd;
+  private long currentEndExtra;
 
   /**
    * The feeder is used to get input to parse
    */
   private final JsonFeeder feeder;
 
+  /**
+   * The feeder if it provides raw UTF-8 bytes, null otherwise
+   */
+  private final Utf8JsonFeeder utf8Feeder;
+
+  /**
+   * A buffer used to widen runs of ASCII bytes to characters before they
+   * are appended to {@link #currentValue} in bulk
+   */
+  private final char[] asciiBuffer = new char[512];
+
+  /**
+   * The feeder if it gives direct access to its buffer, null otherwise
+   */
+  private final BulkJsonFeeder bulkFeeder;
+
+  /**
+   * True if the parser's input consists of raw UTF-8 bytes instead of
+   * decoded characters (see {@link Utf8JsonFeeder})
+   */
+  private final boolean utf8;
+
+  /**
+   * True if the parser's input is known to be encoded in UTF-8 (or ASCII),
+   * so that byte offsets calculated from decoded characters are exact
+   */
+  private final boolean utf8Input;
+
+  /**
+   * The number of continuation bytes still missing to complete the current
+   * UTF-8 sequence (always 0 if the parser does not run in UTF-8 mode)
+   */
+  private int utf8Remaining = 0;
+
+  /**
+   * The bits of the code point collected from the current UTF-8 sequence
+   */
+  private int utf8CodePoint;
+
+  /**
+   * The smallest value allowed for the next continuation byte
+   */
+  private int utf8Lower;
+
+  /**
+   * The largest value allowed for the next continuation byte
+   */
+  private int utf8Upper;
+
+  /**
+   * The nesting depth of the container currently being skipped (0 if the
+   * parser is not skipping, see {@link #skipChildren()})
+   */
+  private int skipDepth = 0;
+
+  /**
+   * True if the parser is skipping a string
+   */
+  private boolean skipInString;
+
+  /**
+   * True if the parser is skipping a string and the previous character
+   * was a backslash
+   */
+  private boolean skipEscape;
+
   /**
    * The first event returned by {@link #parse(char)}
    */
@@ -235,6 +542,28 @@ public class JsonParser {
    */
   private int event2 = JsonEvent.NEED_MORE_INPUT;
 
+  /**
+   * The batch {@link #nextEvents(JsonEventBatch)} is currently filling
+   * (null if the method is not running)
+   */
+  private JsonEventBatch sinkBatch;
+
+  /**
+   * The array {@link #nextEvents(int[], int)} is currently filling (null
+   * if the method is not running)
+   */
+  private int[] sinkEvents;
+
+  /**
+   * The number of events in {@link #sinkEvents}
+   */
+  private int sinkSize;
+
+  /**
+   * The maximum number of events in {@link #sinkEvents}
+   */
+  private int sinkMax;
+
   /**
    * Push a mode onto the stack
    * @param mode the mode to push
@@ -282,7 +611,10 @@ public class JsonParser {
   }
 
   /**
-   * Constructs the JSON parser
+   * <p>Constructs the JSON parser</p>
+   * <p>If the given feeder is a {@link Utf8JsonFeeder}, the parser runs in
+   * UTF-8 mode. It then parses raw bytes and only validates and decodes
+   * UTF-8 sequences inside strings.</p>
    * @param feeder the feeder that will provide the parser with input data
    */
   public JsonParser(JsonFeeder feeder) {
@@ -291,112 +623,1390 @@ public class JsonParser {
     state = GO;
     push(MODE_DONE);
     this.feeder = feeder;
+    this.utf8Feeder = (feeder instanceof Utf8JsonFeeder ?
+        (Utf8JsonFeeder)feeder : null);
+    this.bulkFeeder = (feeder instanceof BulkJsonFeeder ?
+        (BulkJsonFeeder)feeder : null);
+    this.utf8 = utf8Feeder != null;
+    this.utf8Input = utf8 || (bulkFeeder != null &&
+        (bulkFeeder.getCharset().equals(StandardCharsets.UTF_8) ||
+        bulkFeeder.getCharset().equals(StandardCharsets.US_ASCII)));
   }
 
   /**
-   * Set the maximum number of modes on the stack (basically the maximum number
-   * of nested objects/arrays in the JSON text to parse)
-   * @param depth the maximum number of modes
+   * <p>Reset the parser and its feeder (see {@link JsonFeeder#reset()}) to
+   * their initial state so that the parser can be reused for another JSON
+   * text. Input that has not been consumed yet is discarded.</p>
+   * <p>The parser keeps its internal buffers as well as its configuration
+   * (e.g. the maximum depth or the framing). Resetting a parser is
+   * therefore much cheaper than creating a new one.</p>
+   * @since 1.3.0
    */
-  public void setMaxDepth(int depth) {
-    this.depth = depth;
+  public void reset() {
+    feeder.reset();
+
+    top = -1;
+    push(MODE_DONE);
+    state = (framing == JsonFraming.TEXT_SEQUENCE ? OK : GO);
+    documentEnded = false;
+    pendingLiteral = JsonEvent.NEED_MORE_INPUT;
+    pushedBackChar = 0;
+    droppingText = false;
+    nextTextStarted = false;
+    event1 = JsonEvent.NEED_MORE_INPUT;
+    event2 = JsonEvent.NEED_MORE_INPUT;
+
+    if (currentValue.capacity() > MAX_RETAINED_VALUE_CAPACITY) {
+      // do not keep the memory of a huge string forever
+      currentValue = new StringBuilder(INITIAL_VALUE_CAPACITY);
+    } else {
+      currentValue.setLength(0);
+    }
+    stringPartReturned = false;
+    if (base64Decoder != null) {
+      // do not keep a reference to the caller's buffer
+      base64Decoder.setTarget(null);
+    }
+    base64Requested = false;
+    base64Active = false;
+    currentIsNumber = false;
+    currentIsFieldName = false;
+    currentHash = 0;
+    currentSymbol = null;
+    numberNegative = false;
+    numberMantissa = 0;
+    numberDigits = 0;
+    numberScale = 0;
+    numberTruncated = false;
+    numberInteger = false;
+    numberExponent = 0;
+    numberExponentNegative = false;
+    unicodeEscape = 0;
+    utf8Remaining = 0;
+    utf8CodePoint = 0;
+    utf8Lower = 0;
+    utf8Upper = 0;
+
+    skipDepth = 0;
+    skipInString = false;
+    skipEscape = false;
+
+    parsedCharacterCount = 0;
+    extraBytes = 0;
+    tokenStart = 0;
+    tokenStartExtra = 0;
+    event1Start = 0;
+    event1StartExtra = 0;
+    event1End = 0;
+    event1EndExtra = 0;
+    event2Start = 0;
+    event2StartExtra = 0;
+    event2End = 0;
+    event2EndExtra = 0;
+    currentStart = 0;
+    currentStartExtra = 0;
+    currentEnd = 0;
+    currentEndExtra = 0;
   }
 
   /**
-   * @return the maximum number of modes on the stack (basically the maximum
-   * number of nested objects/arrays in the JSON text to parse)
+   * <p>Save the parser's state to a byte array so that parsing can be
+   * resumed later, possibly by another parser in another process (see
+   * {@link #restore(byte[])}). The checkpoint contains everything needed
+   * to continue parsing at the position returned by
+   * {@link #getParsedByteCount()}, including events that have been
+   * produced but not returned yet, the current (partial) value, and the
+   * maximum depth and framing. Other settings as well as input that the
+   * feeder has received but the parser has not consumed yet are not
+   * saved.</p>
+   * <p>A checkpoint can be created between two calls to
+   * {@link #nextEvent()} but not while a string value is being decoded
+   * as base64 (see {@link #decodeBase64(ByteBuffer)}). The parser has to
+   * know the exact number of bytes it has consumed. It must therefore
+   * either run in UTF-8 mode or use one of the feeders that implement
+   * {@link BulkJsonFeeder} with the UTF-8 or US-ASCII charset.</p>
+   * @return the checkpoint
+   * @throws IllegalStateException if a string value is being decoded as
+   * base64 or if the parser cannot determine the number of bytes consumed
+   * @since 1.3.0
    */
-  public int getMaxDepth() {
-    return depth;
+  public byte[] checkpoint() {
+    if (!utf8Input) {
+      throw new IllegalStateException("Checkpoints can only be created " +
+          "if the input is encoded in UTF-8");
+    }
+    if (base64Requested || base64Active) {
+      throw new IllegalStateException("Cannot create a checkpoint while " +
+          "a string value is being decoded as base64");
+    }
+
+    ByteBuffer bb = ByteBuffer.allocate(256 + top + 1 +
+        currentValue.length() * 2);
+    bb.putInt(CHECKPOINT_MAGIC);
+    bb.putInt(CHECKPOINT_VERSION);
+    bb.putInt(depth);
+    bb.putInt(framing);
+    bb.putInt(top);
+    bb.put(stack, 0, top + 1);
+    bb.put(state);
+    putBoolean(bb, documentEnded);
+    bb.putInt(pendingLiteral);
+    bb.putChar(pushedBackChar);
+    putBoolean(bb, droppingText);
+    putBoolean(bb, stringPartReturned);
+    bb.putInt(event1);
+    bb.putInt(event2);
+
+    bb.putInt(currentValue.length());
+    for (int i = 0; i < currentValue.length(); ++i) {
+      bb.putChar(currentValue.charAt(i));
+    }
+    putBoolean(bb, currentIsNumber);
+    putBoolean(bb, currentIsFieldName);
+    putBoolean(bb, currentSymbol != null);
+    bb.putInt(currentHash);
+    putBoolean(bb, numberNegative);
+    bb.putLong(numberMantissa);
+    bb.putInt(numberDigits);
+    bb.putInt(numberScale);
+    putBoolean(bb, numberTruncated);
+    putBoolean(bb, numberInteger);
+    bb.putInt(numberExponent);
+    putBoolean(bb, numberExponentNegative);
+    bb.putInt(unicodeEscape);
+    bb.putInt(utf8Remaining);
+    bb.putInt(utf8CodePoint);
+    bb.putInt(utf8Lower);
+    bb.putInt(utf8Upper);
+    bb.putInt(skipDepth);
+    putBoolean(bb, skipInString);
+    putBoolean(bb, skipEscape);
+
+    // save positions as byte offsets so that they can be restored in
+    // UTF-8 mode as well as in character mode
+    bb.putLong(extraBytes);
+    bb.putLong(toByteOffset(parsedCharacterCount, extraBytes));
+    putPosition(bb, tokenStart, tokenStartExtra);
+    putPosition(bb, event1Start, event1StartExtra);
+    putPosition(bb, event1End, event1EndExtra);
+    putPosition(bb, event2Start, event2StartExtra);
+    putPosition(bb, event2End, event2EndExtra);
+    putPosition(bb, currentStart, currentStartExtra);
+    putPosition(bb, currentEnd, currentEndExtra);
+
+    return Arrays.copyOf(bb.array(), bb.position());
   }
 
   /**
-   * Call this method to proceed parsing the JSON text and to get the next
-   * event. The method returns {@link JsonEvent#NEED_MORE_INPUT} if it needs
-   * more input data from the parser's feeder.
-   * @return the next JSON event or {@link JsonEvent#NEED_MORE_INPUT} if more
-   * input is needed
+   * <p>Restore a state saved with {@link #checkpoint()}. The parser and
+   * its feeder are reset first (see {@link #reset()}). After that, input
+   * has to be fed to the parser starting at the offset returned by
+   * {@link #getParsedByteCount()}.</p>
+   * <p>A checkpoint created in UTF-8 mode (see {@link Utf8JsonFeeder})
+   * can be restored in character mode and vice versa unless it was
+   * created in the middle of a UTF-8 sequence.</p>
+   * @param checkpoint the checkpoint
+   * @throws IllegalArgumentException if the checkpoint is invalid or if
+   * it cannot be restored by this parser
+   * @since 1.3.0
    */
-  public int nextEvent() {
+  public void restore(byte[] checkpoint) {
     try {
-      while (event1 == JsonEvent.NEED_MORE_INPUT) {
-        if (!feeder.hasInput()) {
-          if (feeder.isDone()) {
-            if (state != OK) {
-              int r = stateToEvent();
-              if (r != JsonEvent.NEED_MORE_INPUT) {
-                state = OK;
-                return r;
-              }
-            }
-            return (state == OK && pop(MODE_DONE) ? JsonEvent.EOF : JsonEvent.ERROR);
-          }
-          return JsonEvent.NEED_MORE_INPUT;
-        }
-        parse(feeder.nextInput());
-      }
-    } catch (CharacterCodingException e) {
-      return JsonEvent.ERROR;
+      validateCheckpoint(ByteBuffer.wrap(checkpoint));
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated checkpoint", e);
     }
 
-    int r = event1;
-    if (event1 != JsonEvent.ERROR) {
-      event1 = event2;
-      event2 = JsonEvent.NEED_MORE_INPUT;
+    reset();
+    ByteBuffer bb = ByteBuffer.wrap(checkpoint);
+    bb.position(8);
+    depth = bb.getInt();
+    framing = bb.getInt();
+    top = bb.getInt();
+    if (top >= stack.length) {
+      stack = new byte[Math.min(Integer.highestOneBit(top) * 2, depth)];
     }
+    bb.get(stack, 0, top + 1);
+    state = bb.get();
+    documentEnded = getBoolean(bb);
+    pendingLiteral = bb.getInt();
+    pushedBackChar = bb.getChar();
+    droppingText = getBoolean(bb);
+    stringPartReturned = getBoolean(bb);
+    event1 = bb.getInt();
+    event2 = bb.getInt();
 
-    return r;
+    int len = bb.getInt();
+    for (int i = 0; i < len; ++i) {
+      currentValue.append(bb.getChar());
+    }
+    currentIsNumber = getBoolean(bb);
+    currentIsFieldName = getBoolean(bb);
+    boolean symbol = getBoolean(bb);
+    currentHash = bb.getInt();
+    if (symbol && symbolTable != null) {
+      currentSymbol = symbolTable.lookup(currentValue, currentHash);
+    }
+    numberNegative = getBoolean(bb);
+    numberMantissa = bb.getLong();
+    numberDigits = bb.getInt();
+    numberScale = bb.getInt();
+    numberTruncated = getBoolean(bb);
+    numberInteger = getBoolean(bb);
+    numberExponent = bb.getInt();
+    numberExponentNegative = getBoolean(bb);
+    unicodeEscape = bb.getInt();
+    utf8Remaining = bb.getInt();
+    utf8CodePoint = bb.getInt();
+    utf8Lower = bb.getInt();
+    utf8Upper = bb.getInt();
+    skipDepth = bb.getInt();
+    skipInString = getBoolean(bb);
+    skipEscape = getBoolean(bb);
+
+    extraBytes = bb.getLong();
+    parsedCharacterCount = fromByteOffset(bb.getLong(), extraBytes);
+    tokenStartExtra = bb.getLong();
+    tokenStart = fromByteOffset(bb.getLong(), tokenStartExtra);
+    event1StartExtra = bb.getLong();
+    event1Start = fromByteOffset(bb.getLong(), event1StartExtra);
+    event1EndExtra = bb.getLong();
+    event1End = fromByteOffset(bb.getLong(), event1EndExtra);
+    event2StartExtra = bb.getLong();
+    event2Start = fromByteOffset(bb.getLong(), event2StartExtra);
+    event2EndExtra = bb.getLong();
+    event2End = fromByteOffset(bb.getLong(), event2EndExtra);
+    currentStartExtra = bb.getLong();
+    currentStart = fromByteOffset(bb.getLong(), currentStartExtra);
+    currentEndExtra = bb.getLong();
+    currentEnd = fromByteOffset(bb.getLong(), currentEndExtra);
   }
 
   /**
-   * Get the feeder that can be used to provide more input to the parser
-   * @return the parser's feeder
+   * Check if a checkpoint is valid and if it can be restored by this
+   * parser. The method reads the checkpoint in the same order as
+   * {@link #restore(byte[])} but does not change the parser's state.
+   * @param bb the buffer containing the checkpoint
+   * @throws IllegalArgumentException if the checkpoint is invalid
+   * @throws BufferUnderflowException if the checkpoint is truncated
    */
-  public JsonFeeder getFeeder() {
-    return feeder;
+  private void validateCheckpoint(ByteBuffer bb) {
+    checkCheckpoint(bb.getInt() == CHECKPOINT_MAGIC, "not a checkpoint");
+    checkCheckpoint(bb.getInt() == CHECKPOINT_VERSION, "unknown version");
+    int d = bb.getInt();
+    checkCheckpoint(d > 0, "depth");
+    int f = bb.getInt();
+    checkCheckpoint(f >= JsonFraming.SINGLE &&
+        f <= JsonFraming.TEXT_SEQUENCE, "framing");
+    int t = bb.getInt();
+    checkCheckpoint(t >= 0 && t < d, "stack size");
+    checkCheckpoint(bb.get() == MODE_DONE, "stack");
+    for (int i = 1; i <= t; ++i) {
+      byte mode = bb.get();
+      checkCheckpoint(mode == MODE_ARRAY || mode == MODE_KEY ||
+          mode == MODE_OBJECT, "stack");
+    }
+    byte st = bb.get();
+    checkCheckpoint(st >= GO && st <= N3, "state");
+    getCheckpointBoolean(bb);
+    int literal = bb.getInt();
+    checkCheckpoint(literal == JsonEvent.NEED_MORE_INPUT ||
+        literal == JsonEvent.VALUE_TRUE || literal == JsonEvent.VALUE_FALSE ||
+        literal == JsonEvent.VALUE_NULL, "pending literal");
+    char pushedBack = bb.getChar();
+    checkCheckpoint(pushedBack == 0 || isValueStart(pushedBack),
+        "pushed back character");
+    getCheckpointBoolean(bb);
+    getCheckpointBoolean(bb);
+    for (int i = 0; i < 2; ++i) {
+      int event = bb.getInt();
+      checkCheckpoint(event >= JsonEvent.ERROR &&
+          event <= JsonEvent.VALUE_STRING_PART, "event");
+    }
+
+    int len = bb.getInt();
+    checkCheckpoint(len >= 0 && len <= bb.remaining() / 2, "value length");
+    bb.position(bb.position() + len * 2);
+    getCheckpointBoolean(bb);
+    getCheckpointBoolean(bb);
+    getCheckpointBoolean(bb);
+    bb.getInt();
+    getCheckpointBoolean(bb);
+    bb.getLong();
+    checkCheckpoint(bb.getInt() >= 0, "number of digits");
+    bb.getInt();
+    getCheckpointBoolean(bb);
+    getCheckpointBoolean(bb);
+    checkCheckpoint(bb.getInt() >= 0, "exponent");
+    getCheckpointBoolean(bb);
+    int escape = bb.getInt();
+    checkCheckpoint(escape >= 0 && escape <= 0xFFFF, "unicode escape");
+    int remaining = bb.getInt();
+    checkCheckpoint(remaining >= 0 && remaining <= 3, "UTF-8 state");
+    int codePoint = bb.getInt();
+    checkCheckpoint(codePoint >= 0 && codePoint <= 0x10FFFF, "UTF-8 state");
+    for (int i = 0; i < 2; ++i) {
+      int b = bb.getInt();
+      checkCheckpoint(b >= 0 && b <= 0xFF, "UTF-8 state");
+    }
+    checkCheckpoint(bb.getInt() >= 0, "skip depth");
+    getCheckpointBoolean(bb);
+    getCheckpointBoolean(bb);
+
+    for (int i = 0; i < 8; ++i) {
+      long extra = bb.getLong();
+      long offset = bb.getLong();
+      checkCheckpoint(offset >= 0 && offset - extra >= 0, "position");
+    }
+    checkCheckpoint(!bb.hasRemaining(), "trailing bytes");
+
+    if (remaining > 0 && !utf8) {
+      throw new IllegalArgumentException("The checkpoint cannot be " +
+          "restored with this parser's feeder");
+    }
   }
 
   /**
-   * This function is called for each character (or partial character) in the
-   * JSON text. It can accept UTF-8, UTF-16, or UTF-32. It will set
-   * {@link #event1} and {@link #event2} accordingly. As a precondition these
-   * fields should have a value of {@link JsonEvent#NEED_MORE_INPUT}.
-   * @param nextChar the character to parse
+   * Throw an exception if a checkpoint is invalid
+   * @param valid true if the checked part of the checkpoint is valid
+   * @param what the checked part
+   * @throws IllegalArgumentException if the checkpoint is invalid
    */
-  private void parse(char nextChar) {
-    parsedCharacterCount++;
-
-    // Determine the character's class.
-    byte nextClass;
-    if (nextChar >= 128) {
-        nextClass = C_ETC;
-    } else {
-        nextClass = ascii_class[nextChar];
-        if (nextClass <= __) {
-            event1 = JsonEvent.ERROR;
-            return;
-        }
+  private static void checkCheckpoint(boolean valid, String what) {
+    if (!valid) {
+      throw new IllegalArgumentException("Invalid checkpoint: " + what);
     }
+  }
 
-    // Get the next state from the state transition table.
-    byte nextState = state_transition_table[(state << 5) + nextClass];
-    if (nextState >= 0) {
-      if (nextState >= ST && nextState <= E3) {
-        // According to the 'state_transition_table' we don't need to check
-        // for "state <= E3". There is no way we can get here without 'state'
-        // being less than or equal to E3.
+  /**
+   * Read a boolean from a checkpoint and check if it is valid
+   * @param bb the buffer containing the checkpoint
+   * @return the boolean
+   * @throws IllegalArgumentException if the boolean is invalid
+   */
+  private static boolean getCheckpointBoolean(ByteBuffer bb) {
+    byte b = bb.get();
+    checkCheckpoint(b == 0 || b == 1, "boolean");
+    return b != 0;
+  }
+
+  /**
+   * Write a boolean to a checkpoint
+   * @param bb the buffer containing the checkpoint
+   * @param b the boolean
+   */
+  private static void putBoolean(ByteBuffer bb, boolean b) {
+    bb.put(b ? (byte)1 : (byte)0);
+  }
+
+  /**
+   * Read a boolean from a checkpoint
+   * @param bb the buffer containing the checkpoint
+   * @return the boolean
+   */
+  private static boolean getBoolean(ByteBuffer bb) {
+    return bb.get() != 0;
+  }
+
+  /**
+   * Write a position to a checkpoint
+   * @param bb the buffer containing the checkpoint
+   * @param position the position
+   * @param extra the value of {@link #extraBytes} at the position
+   */
+  private void putPosition(ByteBuffer bb, long position, long extra) {
+    bb.putLong(extra);
+    bb.putLong(toByteOffset(position, extra));
+  }
+
+  /**
+   * Convert a position to a byte offset
+   * @param position the position (a byte offset in UTF-8 mode or a
+   * character offset otherwise)
+   * @param extra the value of {@link #extraBytes} at the position
+   * @return the byte offset
+   */
+  private long toByteOffset(long position, long extra) {
+    return utf8 ? position : position + extra;
+  }
+
+  /**
+   * Convert a byte offset to a position
+   * @param offset the byte offset
+   * @param extra the value of {@link #extraBytes} at the offset
+   * @return the position (a byte offset in UTF-8 mode or a character
+   * offset otherwise)
+   */
+  private long fromByteOffset(long offset, long extra) {
+    return utf8 ? offset : offset - extra;
+  }
+
+  /**
+   * Set the maximum number of modes on the stack (basically the maximum number
+   * of nested objects/arrays in the JSON text to parse)
+   * @param depth the maximum number of modes
+   */
+  public void setMaxDepth(int depth) {
+    this.depth = depth;
+  }
+
+  /**
+   * @return the maximum number of modes on the stack (basically the maximum
+   * number of nested objects/arrays in the JSON text to parse)
+   */
+  public int getMaxDepth() {
+    return depth;
+  }
+
+  /**
+   * <p>Set how the top-level values of the JSON text are framed. By
+   * default, the parser accepts exactly one top-level value
+   * ({@link JsonFraming#SINGLE}). With any other framing, the parser
+   * returns {@link JsonEvent#END_DOCUMENT} after each top-level value and
+   * then continues with the next one. {@link JsonEvent#EOF} is returned
+   * at the end of the JSON text, even if it did not contain any value at
+   * all.</p>
+   * <p>The parser's state and buffers are reused for all values. This
+   * method should be called before parsing starts.</p>
+   * @param framing the framing (see {@link JsonFraming})
+   * @since 1.3.0
+   */
+  public void setFraming(int framing) {
+    if (framing < JsonFraming.SINGLE ||
+        framing > JsonFraming.TEXT_SEQUENCE) {
+      throw new IllegalArgumentException("Unknown framing: " + framing);
+    }
+    this.framing = framing;
+    if (top == 0 && parsedCharacterCount == 0) {
+      // a JSON text sequence has to start with a record separator
+      state = (framing == JsonFraming.TEXT_SEQUENCE ? OK : GO);
+    }
+  }
+
+  /**
+   * @return how the top-level values of the JSON text are framed
+   * @see #setFraming(int)
+   * @since 1.3.0
+   */
+  public int getFraming() {
+    return framing;
+  }
+
+  /**
+   * <p>Set the maximum number of characters of a string value the parser
+   * collects before it returns them. By default, the parser collects all
+   * characters and returns {@link JsonEvent#VALUE_STRING} at the end of
+   * the string. If a threshold is set, the parser returns
+   * {@link JsonEvent#VALUE_STRING_PART} every time it has collected this
+   * number of characters and {@link JsonEvent#VALUE_STRING} with the
+   * remaining characters (if any) at the end of the string. The memory the
+   * parser needs for a string is then bounded by the threshold and not by
+   * the length of the string.</p>
+   * <p>A part may contain one character more than the threshold so that
+   * surrogate pairs are not split. Field names are never split.</p>
+   * @param threshold the maximum number of characters per event or 0 if
+   * strings should never be split
+   * @since 1.3.0
+   */
+  public void setStringPartThreshold(int threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Threshold must not be negative");
+    }
+    stringPartThreshold = (threshold == 0 ? Integer.MAX_VALUE : threshold);
+  }
+
+  /**
+   * @return the maximum number of characters of a string value returned
+   * at once or 0 if strings are never split
+   * @see #setStringPartThreshold(int)
+   * @since 1.3.0
+   */
+  public int getStringPartThreshold() {
+    return (stringPartThreshold == Integer.MAX_VALUE ? 0 :
+      stringPartThreshold);
+  }
+
+  /**
+   * <p>Decode the next value as base64 into the given buffer. The parser
+   * does not collect the characters of the string value but decodes them
+   * while they are being parsed, even if the value spans several chunks
+   * of input.</p>
+   * <p>Call this method right before the parser returns the value (e.g.
+   * after {@link JsonEvent#FIELD_NAME} or {@link JsonEvent#START_ARRAY}).
+   * If the next event is not a string value, the method has no effect.
+   * Every time the buffer is full, the parser returns
+   * {@link JsonEvent#VALUE_STRING_PART}. The caller has to make room in
+   * the buffer (e.g. by consuming and compacting it) or call this method
+   * again with another buffer before it calls {@link #nextEvent()}.
+   * Otherwise, {@link #nextEvent()} throws an
+   * {@link IllegalStateException}. The parser then continues to decode
+   * the current value. At the end of the string value, the parser returns
+   * {@link JsonEvent#VALUE_STRING}. The current string is empty for both
+   * events. If the string value is not valid base64, the parser returns
+   * {@link JsonEvent#ERROR}.</p>
+   * <p>{@link #nextEvents(int[], int)} and
+   * {@link #nextEvents(JsonEventBatch)} stop after
+   * {@link JsonEvent#VALUE_STRING_PART} while a value is being decoded so
+   * that the caller can make room in the buffer.</p>
+   * @param target the buffer to write the decoded bytes to
+   * @throws IllegalArgumentException if the buffer is full
+   * @since 1.3.0
+   */
+  public void decodeBase64(ByteBuffer target) {
+    if (!target.hasRemaining()) {
+      throw new IllegalArgumentException("Target buffer is full");
+    }
+    if (base64Active) {
+      // continue decoding the current value into the given buffer
+      base64Decoder.setTarget(target);
+      return;
+    }
+    if (base64Decoder == null) {
+      base64Decoder = new Base64Decoder();
+    }
+    base64Decoder.start(target);
+    base64Requested = true;
+  }
+
+  /**
+   * <p>Enable or disable canonicalization of field names. If enabled, the
+   * parser keeps a table of the field names it has seen so far and
+   * {@link #getCurrentString()} returns the same string instance for
+   * field names that occur repeatedly. This saves memory allocations for
+   * documents with many objects sharing the same keys.</p>
+   * <p>The table is bounded. Field names beyond its capacity are returned
+   * as new strings.</p>
+   * @param canonicalize true if field names should be canonicalized
+   * @since 1.3.0
+   */
+  public void setCanonicalizeFieldNames(boolean canonicalize) {
+    if (!canonicalize) {
+      symbolTable = null;
+    } else if (symbolTable == null) {
+      symbolTable = new SymbolTable(SymbolTable.DEFAULT_MAX_SIZE);
+    }
+  }
+
+  /**
+   * @return true if field names are canonicalized
+   * @see #setCanonicalizeFieldNames(boolean)
+   * @since 1.3.0
+   */
+  public boolean isCanonicalizeFieldNames() {
+    return symbolTable != null;
+  }
+
+  /**
+   * Call this method to proceed parsing the JSON text and to get the next
+   * event. The method returns {@link JsonEvent#NEED_MORE_INPUT} if it needs
+   * more input data from the parser's feeder.
+   * @return the next JSON event or {@link JsonEvent#NEED_MORE_INPUT} if more
+   * input is needed
+   * @throws IllegalStateException if a string value is being decoded as
+   * base64 and there is no room in the buffer (see
+   * {@link #decodeBase64(ByteBuffer)})
+   */
+  public int nextEvent() {
+    if (base64Active && base64Decoder.isFull()) {
+      throw new IllegalStateException("The buffer for the decoded base64 " +
+          "value is full");
+    }
+
+    if (stringPartReturned) {
+      currentValue.setLength(0);
+      stringPartReturned = false;
+    }
+
+    if (documentEnded) {
+      return endDocument();
+    }
+
+    try {
+      while (event1 == JsonEvent.NEED_MORE_INPUT || drainEvents()) {
+        if (pushedBackChar != 0) {
+          char c = pushedBackChar;
+          pushedBackChar = 0;
+          parse(c);
+          continue;
+        }
+        if (!feeder.hasInput()) {
+          if (feeder.isDone()) {
+            if (state != OK && framing != JsonFraming.TEXT_SEQUENCE) {
+              // a top-level number at the end of a JSON text sequence is
+              // considered truncated, so only accept it otherwise
+              int r = stateToEvent();
+              if (r != JsonEvent.NEED_MORE_INPUT) {
+                state = OK;
+                markValue(parsedCharacterCount);
+                setCurrentToken(event1Start, event1StartExtra,
+                    event1End, event1EndExtra);
+                documentEnded = (framing != JsonFraming.SINGLE && top == 0);
+                return r;
+              }
+            }
+            markCurrentPosition();
+            boolean complete = ((state == OK &&
+                pendingLiteral == JsonEvent.NEED_MORE_INPUT) ||
+                (state == GO && framing != JsonFraming.SINGLE) ||
+                droppingText);
+            if (!complete && framing == JsonFraming.TEXT_SEQUENCE) {
+              // report the truncated text and return EOF next time
+              dropText();
+              return JsonEvent.ERROR;
+            }
+            return (complete && pop(MODE_DONE) ? JsonEvent.EOF : JsonEvent.ERROR);
+          }
+          markCurrentPosition();
+          return JsonEvent.NEED_MORE_INPUT;
+        }
+        if (skipDepth > 0 || droppingText) {
+          skipInput();
+        } else if (utf8Feeder != null) {
+          parseBytes();
+        } else if (bulkFeeder != null) {
+          parseWindow();
+        } else {
+          parse(feeder.nextInput());
+        }
+      }
+    } catch (CharacterCodingException e) {
+      markCurrentPosition();
+      return JsonEvent.ERROR;
+    }
+
+    return takeEvent();
+  }
+
+  /**
+   * Finish the current top-level value (only applies to a framing other
+   * than {@link JsonFraming#SINGLE})
+   * @return {@link JsonEvent#END_DOCUMENT}
+   */
+  private int endDocument() {
+    documentEnded = false;
+    if (framing == JsonFraming.CONCATENATED) {
+      state = GO;
+    }
+    markCurrentPosition();
+    return JsonEvent.END_DOCUMENT;
+  }
+
+  /**
+   * Remove the next event from the queue consisting of {@link #event1} and
+   * {@link #event2} and make its token the current one
+   * @return the event
+   */
+  private int takeEvent() {
+    int r = event1;
+    stringPartReturned = (r == JsonEvent.VALUE_STRING_PART);
+    if (r != JsonEvent.FIELD_NAME) {
+      // the current value is not a field name anymore
+      currentIsFieldName = false;
+    }
+    if (!base64Active) {
+      // a request to decode the next value only applies to this event
+      base64Requested = false;
+    }
+    if (event1 != JsonEvent.ERROR) {
+      setCurrentToken(event1Start, event1StartExtra, event1End, event1EndExtra);
+      event1 = event2;
+      event1Start = event2Start;
+      event1StartExtra = event2StartExtra;
+      event1End = event2End;
+      event1EndExtra = event2EndExtra;
+      event2 = JsonEvent.NEED_MORE_INPUT;
+
+      // the top-level value is complete if there are no more modes
+      // on the stack (and if it is not a string that continues)
+      documentEnded = (framing != JsonFraming.SINGLE && top == 0 &&
+          event1 == JsonEvent.NEED_MORE_INPUT &&
+          r != JsonEvent.VALUE_STRING_PART);
+    } else {
+      markCurrentPosition();
+      if (framing == JsonFraming.TEXT_SEQUENCE) {
+        // RFC 7464, section 2.3: drop the malformed text and continue
+        // with the next one
+        dropText();
+      }
+    }
+
+    return r;
+  }
+
+  /**
+   * <p>Proceed parsing the JSON text and write as many events as possible
+   * into the given array. The method stops if the array is full, if all
+   * available input has been consumed, or after
+   * {@link JsonEvent#EOF} or {@link JsonEvent#ERROR} (see also
+   * {@link #decodeBase64(ByteBuffer)}).</p>
+   * <p>{@link JsonEvent#NEED_MORE_INPUT} is never written to the array.
+   * Instead, the method returns fewer events than requested (possibly 0).
+   * Note that the values of the events are not available with this method.
+   * Use {@link #nextEvents(JsonEventBatch)} if you need them.</p>
+   * @param events the array to write the events to
+   * @param max the maximum number of events to write
+   * @return the number of events written
+   * @since 1.3.0
+   */
+  public int nextEvents(int[] events, int max) {
+    sinkEvents = events;
+    sinkMax = max;
+    sinkSize = 0;
+    try {
+      while (sinkSize < max) {
+        int event = nextEvent();
+        if (event == JsonEvent.NEED_MORE_INPUT) {
+          break;
+        }
+        events[sinkSize++] = event;
+        if (isLastEventInBatch(event)) {
+          break;
+        }
+      }
+      return sinkSize;
+    } finally {
+      sinkEvents = null;
+    }
+  }
+
+  /**
+   * <p>Clear the given batch, proceed parsing the JSON text, and add as many
+   * events as possible to the batch. For every field name, string and
+   * number, the batch also receives the characters of the value. The
+   * events are added while the input is being processed, so this is
+   * faster than calling {@link #nextEvent()} repeatedly.</p>
+   * <p>The method stops if the batch is full, if all available input has
+   * been consumed, or after {@link JsonEvent#EOF} or
+   * {@link JsonEvent#ERROR} (see also {@link #decodeBase64(ByteBuffer)}).
+   * {@link JsonEvent#NEED_MORE_INPUT} is never added to the batch.
+   * Instead, the method returns fewer events than the batch can hold
+   * (possibly 0).</p>
+   * @param batch the batch to fill
+   * @return the number of events in the batch
+   * @since 1.3.0
+   */
+  public int nextEvents(JsonEventBatch batch) {
+    batch.clear();
+    sinkBatch = batch;
+    try {
+      while (!batch.isFull()) {
+        int event = nextEvent();
+        if (event == JsonEvent.NEED_MORE_INPUT) {
+          break;
+        }
+        addCurrentEvent(batch, event);
+        if (isLastEventInBatch(event)) {
+          break;
+        }
+      }
+      return batch.size();
+    } finally {
+      sinkBatch = null;
+    }
+  }
+
+  /**
+   * Check if {@link #nextEvents(int[], int)} and
+   * {@link #nextEvents(JsonEventBatch)} have to stop after the given event
+   * @param event the event
+   * @return true if no more events may be added to the batch
+   */
+  private boolean isLastEventInBatch(int event) {
+    return event == JsonEvent.EOF || event == JsonEvent.ERROR ||
+        (event == JsonEvent.VALUE_STRING_PART && base64Active);
+  }
+
+  /**
+   * Move the events produced so far directly into the batch that
+   * {@link #nextEvents(int[], int)} or {@link #nextEvents(JsonEventBatch)}
+   * is filling so that the parse loop can continue without returning
+   * from {@link #nextEvent()}. The method always leaves room for the event
+   * {@link #nextEvent()} will return and it leaves events that end the
+   * batch in the queue.
+   * @return true if the queue is empty and parsing can continue, false if
+   * {@link #nextEvent()} has to return {@link #event1}
+   */
+  private boolean drainEvents() {
+    while (event1 != JsonEvent.NEED_MORE_INPUT) {
+      // keep room for the event itself, a following END_DOCUMENT, and the
+      // event nextEvent() will return
+      int room;
+      if (sinkBatch != null) {
+        room = sinkBatch.capacity() - sinkBatch.size();
+      } else if (sinkEvents != null) {
+        room = sinkMax - sinkSize;
+      } else {
+        return false;
+      }
+      if (room < 3 || pushedBackChar != 0 || event1 == JsonEvent.ERROR ||
+          (event1 == JsonEvent.VALUE_STRING_PART && base64Active)) {
+        return false;
+      }
+
+      int event = takeEvent();
+      addToSink(event);
+      if (stringPartReturned) {
+        currentValue.setLength(0);
+        stringPartReturned = false;
+      }
+      if (documentEnded) {
+        addToSink(endDocument());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Add an event to the batch that {@link #nextEvents(int[], int)} or
+   * {@link #nextEvents(JsonEventBatch)} is filling
+   * @param event the event
+   */
+  private void addToSink(int event) {
+    if (sinkBatch != null) {
+      addCurrentEvent(sinkBatch, event);
+    } else {
+      sinkEvents[sinkSize++] = event;
+    }
+  }
+
+  /**
+   * Check if the parser has consumed all top-level values completely and
+   * is ready for the next one (only applies to a framing other than
+   * {@link JsonFraming#SINGLE})
+   * @return true if the parser is between two top-level values
+   */
+  boolean isBetweenDocuments() {
+    return state == GO && top == 0 && !documentEnded &&
+        event1 == JsonEvent.NEED_MORE_INPUT;
+  }
+
+  /**
+   * Add an event that has just been returned by {@link #nextEvent()} and
+   * its value (if there is one) to the given batch
+   * @param batch the batch
+   * @param event the event
+   */
+  void addCurrentEvent(JsonEventBatch batch, int event) {
+    switch (event) {
+    case JsonEvent.FIELD_NAME:
+    case JsonEvent.VALUE_STRING:
+    case JsonEvent.VALUE_STRING_PART:
+      batch.add(event, currentValue);
+      break;
+    case JsonEvent.VALUE_INT:
+    case JsonEvent.VALUE_DOUBLE:
+      batch.add(event, currentValue);
+      if (currentIsNumber) {
+        batch.setNumber(numberMantissa, getCurrentExponent(),
+            numberNegative, numberTruncated);
+      }
+      break;
+    default:
+      batch.add(event, null);
+      break;
+    }
+  }
+
+  /**
+   * <p>Skip all children of the current object or array. This method may
+   * only be called directly after {@link #nextEvent()} has returned
+   * {@link JsonEvent#START_OBJECT} or {@link JsonEvent#START_ARRAY}. The
+   * next call to {@link #nextEvent()} will then consume the rest of the
+   * container and return the matching {@link JsonEvent#END_OBJECT} or
+   * {@link JsonEvent#END_ARRAY}. As usual, it returns
+   * {@link JsonEvent#NEED_MORE_INPUT} if it needs more input data.</p>
+   * <p>Skipping is much faster than parsing because the parser only keeps
+   * track of strings and of the nesting depth. Values are not collected.
+   * Note that this also means that the skipped part of the JSON text is
+   * not validated.</p>
+   * @throws IllegalStateException if the last event was not
+   * {@link JsonEvent#START_OBJECT} or {@link JsonEvent#START_ARRAY}
+   * @since 1.3.0
+   */
+  public void skipChildren() {
+    if ((state != OB && state != AR) || skipDepth > 0 ||
+        event1 != JsonEvent.NEED_MORE_INPUT) {
+      throw new IllegalStateException("skipChildren() can only be called " +
+          "directly after START_OBJECT or START_ARRAY");
+    }
+    skipDepth = 1;
+    skipInString = false;
+    skipEscape = false;
+  }
+
+  /**
+   * Get the feeder that can be used to provide more input to the parser
+   * @return the parser's feeder
+   */
+  public JsonFeeder getFeeder() {
+    return feeder;
+  }
+
+  /**
+   * Record the position of the string, number or literal that has just
+   * produced {@link #event1}
+   * @param end the position after the token's last character
+   */
+  private void markValue(long end) {
+    event1Start = tokenStart;
+    event1StartExtra = tokenStartExtra;
+    event1End = end;
+    event1EndExtra = extraBytes;
+  }
+
+  /**
+   * Record the position of the structural character (i.e. a bracket) that
+   * has just been processed and has produced {@link #event1} or
+   * {@link #event2}
+   * @param second true if the character produced {@link #event2}
+   */
+  private void markStructuralChar(boolean second) {
+    if (second) {
+      event2Start = parsedCharacterCount - 1;
+      event2StartExtra = extraBytes;
+      event2End = parsedCharacterCount;
+      event2EndExtra = extraBytes;
+    } else {
+      event1Start = parsedCharacterCount - 1;
+      event1StartExtra = extraBytes;
+      event1End = parsedCharacterCount;
+      event1EndExtra = extraBytes;
+    }
+  }
+
+  /**
+   * Set the position of the token that produced the current event
+   * @param start the token's start position
+   * @param startExtra the value of {@link #extraBytes} at the start position
+   * @param end the token's end position
+   * @param endExtra the value of {@link #extraBytes} at the end position
+   */
+  private void setCurrentToken(long start, long startExtra, long end,
+      long endExtra) {
+    currentStart = start;
+    currentStartExtra = startExtra;
+    currentEnd = end;
+    currentEndExtra = endExtra;
+  }
+
+  /**
+   * Set the position of the current event to the current position of the
+   * parser (used for events that do not belong to a token)
+   */
+  private void markCurrentPosition() {
+    setCurrentToken(parsedCharacterCount, extraBytes, parsedCharacterCount,
+        extraBytes);
+  }
+
+  /**
+   * Get the number of bytes minus one that are needed to encode the given
+   * non-ASCII character in UTF-8. A surrogate counts as half of a
+   * four-byte sequence.
+   * @param c the character (must not be an ASCII character)
+   * @return the number of additional bytes
+   */
+  private static int utf8ExtraBytes(char c) {
+    if (c < 0x800 || Character.isSurrogate(c)) {
+      return 1;
+    }
+    return 2;
+  }
+
+  /**
+   * Parse the characters in the window of {@link #bulkFeeder} until an
+   * event has been produced or until the window is exhausted. Runs of plain
+   * characters inside strings are appended to {@link #currentValue} in bulk.
+   */
+  private void parseWindow() {
+    char[] window = bulkFeeder.getWindow();
+    int pos = bulkFeeder.getWindowPosition();
+    int limit = bulkFeeder.getWindowLimit();
+    while (pos < limit) {
+      if (state == ST) {
+        int start = pos;
+        int max = maxStringRun(pos, limit);
+        char c;
+        while (pos < max && (c = window[pos]) >= 0x20 &&
+            c != '"' && c != '\\') {
+          if (c >= 0x80) {
+            extraBytes += utf8ExtraBytes(c);
+          }
+          ++pos;
+        }
+        if (pos > start) {
+          currentValue.append(window, start, pos - start);
+          parsedCharacterCount += pos - start;
+          if (currentIsFieldName) {
+            int h = currentHash;
+            for (int i = start; i < pos; ++i) {
+              h = 31 * h + window[i];
+            }
+            currentHash = h;
+          }
+          if (pos == limit) {
+            break;
+          }
+        }
+        if (currentValue.length() >= stringPartThreshold) {
+          checkStringPart();
+          if (event1 != JsonEvent.NEED_MORE_INPUT && !drainEvents()) {
+            break;
+          }
+        }
+      }
+      parse(window[pos++]);
+      if (event1 != JsonEvent.NEED_MORE_INPUT && !drainEvents()) {
+        break;
+      }
+    }
+    bulkFeeder.setWindowPosition(pos);
+  }
+
+  /**
+   * Parse the bytes in the buffer of {@link #utf8Feeder} until an event has
+   * been produced or until the buffer is exhausted. Runs of plain ASCII
+   * characters inside strings are appended to {@link #currentValue} without
+   * going through the state machine.
+   */
+  private void parseBytes() {
+    byte[] buf = utf8Feeder.buf;
+    int pos = utf8Feeder.position;
+    int limit = utf8Feeder.limit;
+    while (pos < limit) {
+      if (state == ST && utf8Remaining == 0) {
+        int start = pos;
+        int max = maxStringRun(pos, limit);
+        byte b;
+        while (pos < max && (b = buf[pos]) >= 0x20 &&
+            b != '"' && b != '\\') {
+          ++pos;
+        }
+        if (pos > start) {
+          appendAscii(buf, start, pos);
+          parsedCharacterCount += pos - start;
+          if (currentIsFieldName) {
+            int h = currentHash;
+            for (int i = start; i < pos; ++i) {
+              h = 31 * h + buf[i];
+            }
+            currentHash = h;
+          }
+          if (pos == limit) {
+            break;
+          }
+        }
+        if (currentValue.length() >= stringPartThreshold) {
+          checkStringPart();
+          if (event1 != JsonEvent.NEED_MORE_INPUT && !drainEvents()) {
+            break;
+          }
+        }
+      }
+      parse((char)(buf[pos++] & 0xFF));
+      if (event1 != JsonEvent.NEED_MORE_INPUT && !drainEvents()) {
+        break;
+      }
+    }
+    utf8Feeder.position = pos;
+  }
+
+  /**
+   * Append a run of ASCII bytes to {@link #currentValue}
+   * @param buf the buffer containing the bytes
+   * @param start the position of the first byte
+   * @param end the position after the last byte
+   */
+  private void appendAscii(byte[] buf, int start, int end) {
+    char[] chars = asciiBuffer;
+    while (start < end) {
+      int n = Math.min(end - start, chars.length);
+      for (int i = 0; i < n; ++i) {
+        chars[i] = (char)buf[start + i];
+      }
+      currentValue.append(chars, 0, n);
+      start += n;
+    }
+  }
+
+  /**
+   * Calculate where a run of plain characters inside a string has to stop
+   * at the latest so that {@link #currentValue} does not grow beyond
+   * {@link #stringPartThreshold}
+   * @param pos the position of the run's first character
+   * @param limit the end of the available input
+   * @return the position after the run's last character
+   */
+  private int maxStringRun(int pos, int limit) {
+    if (base64Active) {
+      // characters have to be decoded one by one
+      return pos;
+    }
+    int remaining = stringPartThreshold - currentValue.length();
+    if (currentIsFieldName || remaining >= limit - pos) {
+      return limit;
+    }
+    return pos + Math.max(remaining, 0);
+  }
+
+  /**
+   * Produce a {@link JsonEvent#VALUE_STRING_PART} event if the current
+   * string value has reached {@link #stringPartThreshold}. Field names and
+   * surrogate pairs are never split.
+   */
+  private void checkStringPart() {
+    int len = currentValue.length();
+    if (currentIsFieldName || len < stringPartThreshold ||
+        Character.isHighSurrogate(currentValue.charAt(len - 1))) {
+      return;
+    }
+    addStringPart();
+  }
+
+  /**
+   * Produce a {@link JsonEvent#VALUE_STRING_PART} event for the characters
+   * of the current string that have been parsed since the last part
+   */
+  private void addStringPart() {
+    event1 = JsonEvent.VALUE_STRING_PART;
+    markValue(parsedCharacterCount);
+
+    // the next part starts here
+    tokenStart = parsedCharacterCount;
+    tokenStartExtra = extraBytes;
+  }
+
+  /**
+   * Skip input until the end of the container being skipped (or of the
+   * text being dropped, see {@link #dropText()}) has been reached or until
+   * there is no more input available
+   * @throws CharacterCodingException if the input data contains invalid
+   * characters
+   */
+  private void skipInput() throws CharacterCodingException {
+    if (utf8Feeder != null) {
+      byte[] buf = utf8Feeder.buf;
+      int pos = utf8Feeder.position;
+      int start = pos;
+      int limit = utf8Feeder.limit;
+      while (pos < limit && !skip(buf[pos++])) {
+        // keep skipping
+      }
+      parsedCharacterCount += pos - start;
+      utf8Feeder.position = pos;
+    } else if (bulkFeeder != null) {
+      char[] window = bulkFeeder.getWindow();
+      int pos = bulkFeeder.getWindowPosition();
+      int start = pos;
+      int limit = bulkFeeder.getWindowLimit();
+      while (pos < limit && !skip(window[pos++])) {
+        // keep skipping
+      }
+      parsedCharacterCount += pos - start;
+      bulkFeeder.setWindowPosition(pos);
+    } else {
+      parsedCharacterCount++;
+      skip(feeder.nextInput());
+    }
+    if (event1 != JsonEvent.NEED_MORE_INPUT) {
+      markStructuralChar(false);
+    }
+  }
+
+  /**
+   * Process a character while skipping a container. Only keeps track of
+   * strings and the nesting depth. When the end of the container has been
+   * reached, the method sets {@link #event1} and leaves the skipping mode.
+   * While a text is being dropped, only looks for the next record
+   * separator.
+   * @param c the character (or byte if the parser runs in UTF-8 mode)
+   * @return true if the end of the container or the next record separator
+   * has been reached
+   */
+  private boolean skip(int c) {
+    if (c >= 0x80) {
+      extraBytes += utf8ExtraBytes((char)c);
+    } else if (c < 0) {
+      // a byte of a UTF-8 sequence in UTF-8 mode
+      if ((c & 0xC0) == 0x80) {
+        ++extraBytes;
+      } else if ((c & 0xF0) == 0xF0) {
+        --extraBytes;
+      }
+    }
+
+    if (droppingText) {
+      if (c == RECORD_SEPARATOR) {
+        // the next text of the JSON text sequence starts here
+        droppingText = false;
+        return true;
+      }
+      return false;
+    }
+
+    if (skipInString) {
+      if (skipEscape) {
+        skipEscape = false;
+      } else if (c == '\\') {
+        skipEscape = true;
+      } else if (c == '"') {
+        skipInString = false;
+      }
+      return false;
+    }
+
+    switch (c) {
+    case '"':
+      skipInString = true;
+      return false;
+
+    case '{':
+    case '[':
+      ++skipDepth;
+      return false;
+
+    case '}':
+    case ']':
+      if (--skipDepth > 0) {
+        return false;
+      }
+      if (c == '}' ? pop(MODE_KEY) : pop(MODE_ARRAY)) {
+        state = OK;
+        event1 = (c == '}' ? JsonEvent.END_OBJECT : JsonEvent.END_ARRAY);
+      } else {
+        event1 = JsonEvent.ERROR;
+      }
+      return true;
+
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * This function is called for each character (or partial character) in the
+   * JSON text. It can accept UTF-8, UTF-16, or UTF-32. It will set
+   * {@link #event1} and {@link #event2} accordingly. As a precondition these
+   * fields should have a value of {@link JsonEvent#NEED_MORE_INPUT}.
+   * @param nextChar the character to parse (or the next byte if the parser
+   * runs in UTF-8 mode)
+   */
+  private void parse(char nextChar) {
+    parsedCharacterCount++;
+
+    // Determine the character's class.
+    byte nextClass;
+    if (nextChar >= 128) {
+        nextClass = C_ETC;
+    } else {
+        if (utf8Remaining != 0) {
+            // incomplete UTF-8 sequence
+            event1 = JsonEvent.ERROR;
+            return;
+        }
+        nextClass = ascii_class[nextChar];
+        if (nextClass <= __) {
+            if (nextChar == RECORD_SEPARATOR &&
+                framing == JsonFraming.TEXT_SEQUENCE) {
+              if (isRecordSeparatorAllowed()) {
+                // start of the next value of a JSON text sequence
+                state = GO;
+                return;
+              }
+              // the current text has been truncated
+              nextTextStarted = true;
+            }
+            event1 = JsonEvent.ERROR;
+            return;
+        }
+    }
+
+    // Get the next state from the state transition table.
+    byte nextState = state_transition_table[(state << 5) + nextClass];
+    if (nextState == __ && top == 0 && framing == JsonFraming.CONCATENATED &&
+        isCompleteNumber() && isValueStart(nextChar)) {
+      // a value directly following a top-level number ends the number.
+      // parse the character again when the next value is parsed.
+      event1 = stateToEvent();
+      markValue(parsedCharacterCount - 1);
+      state = OK;
+      pushedBackChar = nextChar;
+      parsedCharacterCount--;
+      return;
+    }
+    if (nextState >= 0) {
+      if (state < ST && nextState >= ST) {
+        // start of a string, number or literal
+        tokenStart = parsedCharacterCount - 1;
+        tokenStartExtra = extraBytes;
+      }
+      if (nextState >= ST && nextState <= E3) {
+        // According to the 'state_transition_table' we don't need to check
+        // for "state <= E3". There is no way we can get here without 'state'
+        // being less than or equal to E3.
         // if (state >= ST && state <= E3) {
         if (state >= ST) {
-          currentValue.append(nextChar);
+          if (state <= U4) {
+            if (!appendStringChar(nextState, nextChar)) {
+              event1 = JsonEvent.ERROR;
+              return;
+            }
+            if (currentValue.length() >= stringPartThreshold) {
+              checkStringPart();
+            }
+          } else {
+            currentValue.append(nextChar);
+            accumulateNumber(nextState, nextChar);
+          }
         } else {
           currentValue.setLength(0);
-          if (nextState != ST) {
+          currentSymbol = null;
+          currentIsNumber = (nextState != ST);
+          currentIsFieldName = !currentIsNumber &&
+              (state == OB || state == KE);
+          base64Active = base64Requested && !currentIsNumber &&
+              !currentIsFieldName;
+          currentHash = 0;
+          if (currentIsNumber) {
             currentValue.append(nextChar);
+            numberNegative = false;
+            numberMantissa = 0;
+            numberDigits = 0;
+            numberScale = 0;
+            numberTruncated = false;
+            numberInteger = true;
+            numberExponent = 0;
+            numberExponentNegative = false;
+            accumulateNumber(nextState, nextChar);
           }
         }
       } else if (nextState == OK) {
-        // end of token identified, convert state to result
-        event1 = stateToEvent();
+        if (top == 0 && framing != JsonFraming.SINGLE) {
+          if (nextChar == '\n' && framing == JsonFraming.LINE_DELIMITED) {
+            // a line break after a top-level value: accept the next one
+            nextState = GO;
+          }
+        }
+
+        if (pendingLiteral != JsonEvent.NEED_MORE_INPUT) {
+          // the top-level literal has been followed by whitespace
+          event1 = pendingLiteral;
+          pendingLiteral = JsonEvent.NEED_MORE_INPUT;
+        } else {
+          // end of token identified, convert state to result
+          event1 = stateToEvent();
+          if (event1 != JsonEvent.NEED_MORE_INPUT) {
+            // numbers end before the current character, literals with it
+            markValue(state >= T1 ? parsedCharacterCount :
+              parsedCharacterCount - 1);
+            if (state >= T1 && top == 0 &&
+                framing == JsonFraming.TEXT_SEQUENCE) {
+              // a top-level literal in a JSON text sequence might have
+              // been truncated unless it is followed by whitespace
+              pendingLiteral = event1;
+              event1 = JsonEvent.NEED_MORE_INPUT;
+            }
+          }
+        }
       }
 
       // Change the state.
@@ -407,6 +2017,250 @@ public class JsonParser {
     }
   }
 
+  /**
+   * Check if a record separator may occur at the current position. This
+   * is the case in a JSON text sequence before a value or after a complete
+   * value that cannot have been truncated (i.e. numbers and literals must
+   * have been followed by whitespace).
+   * @return true if the record separator is allowed
+   */
+  private boolean isRecordSeparatorAllowed() {
+    return top == 0 && (state == GO || (state == OK &&
+        pendingLiteral == JsonEvent.NEED_MORE_INPUT));
+  }
+
+  /**
+   * @return true if the current state is the state of a number that may
+   * end at the current position
+   */
+  private boolean isCompleteNumber() {
+    return state == ZE || state == IN || state == FR || state == E3;
+  }
+
+  /**
+   * Check if a character starts a value that cannot be the continuation
+   * of a number
+   * @param c the character
+   * @return true if the character starts such a value
+   */
+  private static boolean isValueStart(char c) {
+    return c == '{' || c == '[' || c == '"' || c == 't' || c == 'f' ||
+        c == 'n';
+  }
+
+  /**
+   * Drop the rest of a malformed or truncated text of a JSON text sequence
+   * (see RFC 7464, section 2.3). The parser skips all characters up to the
+   * next record separator and then continues with the next text.
+   */
+  private void dropText() {
+    top = 0;
+    state = GO;
+    event1 = JsonEvent.NEED_MORE_INPUT;
+    event2 = JsonEvent.NEED_MORE_INPUT;
+    pendingLiteral = JsonEvent.NEED_MORE_INPUT;
+    documentEnded = false;
+    droppingText = !nextTextStarted;
+    nextTextStarted = false;
+    skipDepth = 0;
+    skipInString = false;
+    skipEscape = false;
+    utf8Remaining = 0;
+    base64Active = false;
+  }
+
+  /**
+   * Append a character of a string to {@link #currentValue} while the
+   * parser moves through the states ST, ES and U1 to U4. Escape sequences
+   * are decoded on the fly, so the backslash and the characters of the
+   * sequence are not appended themselves.
+   * @param nextState the state the parser moves to
+   * @param nextChar the character that caused the state change
+   * @return false if the character is part of an invalid UTF-8 sequence
+   * or if it is not valid base64
+   */
+  private boolean appendStringChar(byte nextState, char nextChar) {
+    switch (state) {
+    case ST:
+      if (nextState == ES) {
+        // start of an escape sequence
+        return true;
+      }
+      if (nextChar >= 128) {
+        if (utf8) {
+          return appendUtf8(nextChar);
+        }
+        extraBytes += utf8ExtraBytes(nextChar);
+      }
+      return appendChar(nextChar);
+
+    case ES:
+      switch (nextChar) {
+      case 'b':
+        return appendChar('\b');
+      case 'f':
+        return appendChar('\f');
+      case 'n':
+        return appendChar('\n');
+      case 'r':
+        return appendChar('\r');
+      case 't':
+        return appendChar('\t');
+      case 'u':
+        unicodeEscape = 0;
+        return true;
+      default:
+        // '"', '\\' and '/'
+        return appendChar(nextChar);
+      }
+
+    default:
+      // U1 to U4: collect the hex digits of a \\uXXXX escape sequence.
+      // Surrogate pairs consist of two such sequences and are
+      // composed automatically.
+      unicodeEscape = (unicodeEscape << 4) + Character.digit(nextChar, 16);
+      if (nextState == ST) {
+        return appendChar((char)unicodeEscape);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Append a character to the current string and update its hash if
+   * necessary. If the string is being decoded as base64, decode the
+   * character instead.
+   * @param c the character to append
+   * @return false if the character is not valid base64
+   */
+  private boolean appendChar(char c) {
+    if (base64Active) {
+      int n = base64Decoder.decode(c);
+      if (n > 0 && base64Decoder.isFull()) {
+        addStringPart();
+      }
+      return n >= 0;
+    }
+    currentValue.append(c);
+    if (currentIsFieldName) {
+      currentHash = 31 * currentHash + c;
+    }
+    return true;
+  }
+
+  /**
+   * Update the accumulated value of the current number while the parser
+   * moves through the states MI, ZE, IN, F0, FR and E1 to E3
+   * @param nextState the state the parser moves to
+   * @param nextChar the character that caused the state change
+   */
+  private void accumulateNumber(byte nextState, char nextChar) {
+    switch (nextState) {
+    case MI:
+      numberNegative = true;
+      break;
+
+    case IN:
+    case FR: {
+      int digit = nextChar - '0';
+      boolean fraction = (nextState == FR);
+      if (numberDigits < MAX_MANTISSA_DIGITS) {
+        // leading zeros of a fraction are not significant
+        if (numberDigits > 0 || digit != 0) {
+          numberMantissa = numberMantissa * 10 + digit;
+          ++numberDigits;
+        }
+        if (fraction) {
+          --numberScale;
+        }
+      } else {
+        // the digit does not fit into the mantissa anymore
+        ++numberDigits;
+        if (digit != 0) {
+          numberTruncated = true;
+        }
+        if (!fraction) {
+          ++numberScale;
+        }
+      }
+      break;
+    }
+
+    case F0:
+    case E1:
+      numberInteger = false;
+      break;
+
+    case E2:
+      numberExponentNegative = (nextChar == '-');
+      break;
+
+    case E3:
+      if (numberExponent < MAX_EXPONENT) {
+        numberExponent = numberExponent * 10 + (nextChar - '0');
+      }
+      break;
+
+    default:
+      // ZE: a single zero in the integer part does not change the value
+      break;
+    }
+  }
+
+  /**
+   * Validate a byte of a UTF-8 sequence inside a string. Append the
+   * decoded character to {@link #currentValue} as soon as the sequence
+   * is complete. Overlong sequences, surrogates and code points greater
+   * than U+10FFFF are rejected.
+   * @param b the byte (between 128 and 255)
+   * @return false if the byte is not allowed at this position
+   */
+  private boolean appendUtf8(int b) {
+    if (utf8Remaining == 0) {
+      // lead byte
+      if (b < 0xC2) {
+        return false;
+      } else if (b < 0xE0) {
+        utf8CodePoint = b & 0x1F;
+        utf8Remaining = 1;
+        utf8Lower = 0x80;
+        utf8Upper = 0xBF;
+      } else if (b < 0xF0) {
+        utf8CodePoint = b & 0x0F;
+        utf8Remaining = 2;
+        utf8Lower = (b == 0xE0 ? 0xA0 : 0x80);
+        utf8Upper = (b == 0xED ? 0x9F : 0xBF);
+      } else if (b < 0xF5) {
+        utf8CodePoint = b & 0x07;
+        utf8Remaining = 3;
+        utf8Lower = (b == 0xF0 ? 0x90 : 0x80);
+        utf8Upper = (b == 0xF4 ? 0x8F : 0xBF);
+      } else {
+        return false;
+      }
+      return true;
+    }
+
+    // continuation byte
+    if (b < utf8Lower || b > utf8Upper) {
+      return false;
+    }
+    utf8CodePoint = (utf8CodePoint << 6) | (b & 0x3F);
+    utf8Lower = 0x80;
+    utf8Upper = 0xBF;
+    if (--utf8Remaining == 0) {
+      // two-byte sequences produce one character, three-byte sequences
+      // one character and four-byte sequences two characters
+      extraBytes += (utf8CodePoint >= 0x800 ? 2 : 1);
+      if (utf8CodePoint >= 0x10000) {
+        return appendChar(Character.highSurrogate(utf8CodePoint)) &&
+            appendChar(Character.lowSurrogate(utf8CodePoint));
+      }
+      return appendChar((char)utf8CodePoint);
+    }
+    return true;
+  }
+
   /**
    * Perform an action that changes the parser state
    * @param action the action to perform
@@ -421,6 +2275,7 @@ public class JsonParser {
       }
       state = OK;
       event1 = JsonEvent.END_OBJECT;
+      markStructuralChar(false);
       break;
 
     // }
@@ -432,8 +2287,11 @@ public class JsonParser {
       event1 = stateToEvent();
       if (event1 == JsonEvent.NEED_MORE_INPUT) {
         event1 = JsonEvent.END_OBJECT;
+        markStructuralChar(false);
       } else {
+        markValue(parsedCharacterCount - 1);
         event2 = JsonEvent.END_OBJECT;
+        markStructuralChar(true);
       }
       state = OK;
       break;
@@ -447,8 +2305,11 @@ public class JsonParser {
       event1 = stateToEvent();
       if (event1 == JsonEvent.NEED_MORE_INPUT) {
         event1 = JsonEvent.END_ARRAY;
+        markStructuralChar(false);
       } else {
+        markValue(parsedCharacterCount - 1);
         event2 = JsonEvent.END_ARRAY;
+        markStructuralChar(true);
       }
       state = OK;
       break;
@@ -461,6 +2322,7 @@ public class JsonParser {
       }
       state = OB;
       event1 = JsonEvent.START_OBJECT;
+      markStructuralChar(false);
       break;
 
     // [
@@ -471,17 +2333,29 @@ public class JsonParser {
       }
       state = AR;
       event1 = JsonEvent.START_ARRAY;
+      markStructuralChar(false);
       break;
 
     // "
     case -4:
       if (stack[top] == MODE_KEY) {
+        if (symbolTable != null) {
+          currentSymbol = symbolTable.lookup(currentValue, currentHash);
+        }
         state = CO;
         event1 = JsonEvent.FIELD_NAME;
       } else {
+        if (base64Active) {
+          base64Active = false;
+          if (!base64Decoder.finish()) {
+            event1 = JsonEvent.ERROR;
+            return;
+          }
+        }
         state = OK;
         event1 = JsonEvent.VALUE_STRING;
       }
+      markValue(parsedCharacterCount);
       break;
 
     // ,
@@ -494,10 +2368,12 @@ public class JsonParser {
           return;
         }
         event1 = stateToEvent();
+        markValue(parsedCharacterCount - 1);
         state = KE;
         break;
       case MODE_ARRAY:
         event1 = stateToEvent();
+        markValue(parsedCharacterCount - 1);
         state = VA;
         break;
       default:
@@ -545,33 +2421,240 @@ public class JsonParser {
 
   /**
    * If the event returned by {@link #nextEvent()} was
-   * {@link JsonEvent#VALUE_STRING} this method will return the parsed string
+   * {@link JsonEvent#VALUE_STRING} or {@link JsonEvent#FIELD_NAME} this
+   * method will return the parsed string. Escape sequences have already
+   * been decoded. Field names may be canonical instances (see
+   * {@link #setCanonicalizeFieldNames(boolean)}).
    * @return the parsed string
    */
   public String getCurrentString() {
+    if (currentSymbol != null) {
+      return currentSymbol;
+    }
     return currentValue.toString();
   }
 
+  /**
+   * <p>Get a read-only view on the current value (i.e. the string, field
+   * name or number returned by the last call to {@link #nextEvent()}).
+   * In contrast to {@link #getCurrentString()} this method does not
+   * allocate memory.</p>
+   * <p>The view is reused. Its contents change with the next call to
+   * {@link #nextEvent()}. Call {@link CharSequence#toString()} if you
+   * need to keep the value.</p>
+   * @return the view on the current value
+   * @since 1.3.0
+   */
+  public CharSequence getCurrentCharSequence() {
+    return currentValueView;
+  }
+
+  /**
+   * Get the number of characters of the current value (i.e. the string,
+   * field name or number returned by the last call to {@link #nextEvent()})
+   * @return the length of the current value
+   * @since 1.3.0
+   */
+  public int getCurrentLength() {
+    return currentValue.length();
+  }
+
+  /**
+   * Copy the characters of the current value (i.e. the string, field name
+   * or number returned by the last call to {@link #nextEvent()}) into the
+   * given array
+   * @param dst the destination array
+   * @param off the offset in the destination array at which the first
+   * character should be written
+   * @return the number of characters copied (see {@link #getCurrentLength()})
+   * @throws IndexOutOfBoundsException if the destination array is too small
+   * @since 1.3.0
+   */
+  public int copyCurrentTo(char[] dst, int off) {
+    int len = currentValue.length();
+    currentValue.getChars(0, len, dst, off);
+    return len;
+  }
+
+  /**
+   * <p>If the event returned by {@link #nextEvent()} was
+   * {@link JsonEvent#FIELD_NAME} this method will look up the field name in
+   * the given set and return its ID.</p>
+   * <p>The lookup uses the hash code calculated while the field name was
+   * parsed and compares the characters in place. In contrast to
+   * {@link #getCurrentString()} it does not allocate any memory.</p>
+   * @param fields the set of known field names
+   * @return the ID of the field name (i.e. its index in the set) or -1 if
+   * the set does not contain the field name or if the current value is
+   * not a field name
+   * @since 1.3.0
+   */
+  public int getCurrentFieldId(FieldSet fields) {
+    if (!currentIsFieldName) {
+      return -1;
+    }
+    return fields.indexOf(currentValue, currentHash);
+  }
+
   /**
    * If the event returned by {@link #nextEvent()} was
-   * {@link JsonEvent#VALUE_INT} this method will return the parsed integer
+   * {@link JsonEvent#VALUE_INT} this method will return the parsed integer.
+   * The value has already been accumulated while parsing, so calling this
+   * method does not allocate any memory.
    * @return the parsed integer
+   * @throws NumberFormatException if the value does not fit into an integer
    */
   public int getCurrentInt() {
-    return Integer.parseInt(currentValue.toString());
+    if (!currentIsNumber) {
+      return Integer.parseInt(currentValue.toString());
+    }
+    long l = getCurrentLong();
+    if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+      throw numberFormatException();
+    }
+    return (int)l;
+  }
+
+  /**
+   * If the event returned by {@link #nextEvent()} was
+   * {@link JsonEvent#VALUE_INT} this method will return the parsed integer
+   * as a long. The value has already been accumulated while parsing, so
+   * calling this method does not allocate any memory.
+   * @return the parsed integer
+   * @throws NumberFormatException if the value does not fit into a long
+   * @since 1.3.0
+   */
+  public long getCurrentLong() {
+    if (!currentIsNumber) {
+      return Long.parseLong(currentValue.toString());
+    }
+    if (!numberInteger || numberDigits > MAX_MANTISSA_DIGITS) {
+      throw numberFormatException();
+    }
+    long m = numberMantissa;
+    if (m < 0) {
+      // the unsigned mantissa is greater than Long.MAX_VALUE
+      if (numberNegative && m == Long.MIN_VALUE) {
+        return m;
+      }
+      throw numberFormatException();
+    }
+    return numberNegative ? -m : m;
+  }
+
+  /**
+   * If the event returned by {@link #nextEvent()} was
+   * {@link JsonEvent#VALUE_INT} this method will return the parsed integer
+   * as a {@link BigInteger}. Use this method for integers that do not fit
+   * into a long (see {@link #getCurrentNumberType()}).
+   * @return the parsed integer
+   * @throws NumberFormatException if the value is not an integer
+   * @since 1.3.0
+   */
+  public BigInteger getCurrentBigInteger() {
+    if (currentIsNumber && numberInteger &&
+        numberDigits <= MAX_MANTISSA_DIGITS && numberMantissa >= 0) {
+      return BigInteger.valueOf(numberNegative ?
+          -numberMantissa : numberMantissa);
+    }
+    return new BigInteger(currentValue.toString());
+  }
+
+  /**
+   * If the event returned by {@link #nextEvent()} was
+   * {@link JsonEvent#VALUE_INT} or {@link JsonEvent#VALUE_DOUBLE} this
+   * method will return the parsed number as a {@link BigDecimal} without
+   * losing precision
+   * @return the parsed number
+   * @since 1.3.0
+   */
+  public BigDecimal getCurrentBigDecimal() {
+    if (currentIsNumber && numberDigits <= MAX_MANTISSA_DIGITS &&
+        numberMantissa >= 0 && numberExponent < MAX_EXPONENT) {
+      return BigDecimal.valueOf(numberNegative ?
+          -numberMantissa : numberMantissa, -getCurrentExponent());
+    }
+    return new BigDecimal(currentValue.toString());
+  }
+
+  /**
+   * <p>Get the type of the number returned by the last call to
+   * {@link #nextEvent()}. The type is determined from the digits
+   * accumulated while parsing, so this method is cheap and can be used to
+   * decide which getter to call without having to catch
+   * {@link NumberFormatException}s.</p>
+   * <p>For example, if the event was {@link JsonEvent#VALUE_INT} and this
+   * method returns {@link JsonNumberType#LONG}, the value can be retrieved
+   * with {@link #getCurrentLong()}.</p>
+   * @return the number type (see {@link JsonNumberType}) or
+   * {@link JsonNumberType#NONE} if the current value is not a number
+   * @since 1.3.0
+   */
+  public int getCurrentNumberType() {
+    if (!currentIsNumber) {
+      return JsonNumberType.NONE;
+    }
+    if (!numberInteger) {
+      return JsonNumberType.DOUBLE;
+    }
+    if (numberDigits > MAX_MANTISSA_DIGITS) {
+      return JsonNumberType.BIG_INTEGER;
+    }
+    long m = numberMantissa;
+    if (m < 0) {
+      // the unsigned mantissa is greater than Long.MAX_VALUE
+      return numberNegative && m == Long.MIN_VALUE ?
+          JsonNumberType.LONG : JsonNumberType.BIG_INTEGER;
+    }
+    if (m <= Integer.MAX_VALUE ||
+        (numberNegative && m == -(long)Integer.MIN_VALUE)) {
+      return JsonNumberType.INT;
+    }
+    return JsonNumberType.LONG;
   }
 
   /**
    * If the event returned by {@link #nextEvent()} was
-   * {@link JsonEvent#VALUE_DOUBLE} this method will return the parsed double
+   * {@link JsonEvent#VALUE_DOUBLE} this method will return the parsed double.
+   * For the vast majority of numbers the value is calculated from the
+   * digits accumulated while parsing without allocating memory (see
+   * {@link DoubleConversion}).
    * @return the parsed double
    */
   public double getCurrentDouble() {
+    if (currentIsNumber) {
+      double d = DoubleConversion.toDouble(numberMantissa,
+          getCurrentExponent(), numberNegative, numberTruncated);
+      if (!Double.isNaN(d)) {
+        return d;
+      }
+    }
     return Double.parseDouble(currentValue.toString());
   }
 
   /**
-   * <p>Get the number of characters processed by the JSON parser so far.</p>
+   * @return the decimal exponent of the current number's accumulated
+   * mantissa
+   */
+  private int getCurrentExponent() {
+    return numberScale + (numberExponentNegative ?
+        -numberExponent : numberExponent);
+  }
+
+  /**
+   * @return an exception indicating that the current value cannot be
+   * converted to the requested type
+   */
+  private NumberFormatException numberFormatException() {
+    return new NumberFormatException("For input string: \"" +
+        currentValue + "\"");
+  }
+
+  /**
+   * <p>Get the number of characters processed by the JSON parser so far.
+   * This is also true if the parser runs in UTF-8 mode (see
+   * {@link Utf8JsonFeeder}). Use {@link #getParsedByteCount()} to get the
+   * number of bytes processed.</p>
    * <p>Use this method to get the location of an event returned by
    * {@link #nextEvent()}. Note that the character count is always greater than
    * the actual position of the event in the parsed JSON text. For example, if
@@ -586,6 +2669,104 @@ public class JsonParser {
    * @since 1.1.0
    */
   public int getParsedCharacterCount() {
-    return parsedCharacterCount;
+    if (utf8) {
+      // in UTF-8 mode, the parser counts bytes
+      return (int)(parsedCharacterCount - extraBytes);
+    }
+    return (int)parsedCharacterCount;
+  }
+
+  /**
+   * Get the number of bytes the parser has consumed so far. In UTF-8 mode
+   * (see {@link Utf8JsonFeeder}), this is exact. Otherwise, the number is
+   * calculated from the characters' lengths in UTF-8 (see
+   * {@link #getTokenStartOffset()}). After a checkpoint has been restored
+   * (see {@link #restore(byte[])}), input has to be fed starting at this
+   * offset.
+   * @return the number of bytes consumed
+   * @since 1.3.0
+   */
+  public long getParsedByteCount() {
+    return toByteOffset(parsedCharacterCount, extraBytes);
+  }
+
+  /**
+   * <p>Get the byte offset of the first character of the token that
+   * produced the event returned by the last call to {@link #nextEvent()}.
+   * Tokens are strings (including the quotes), numbers, literals such as
+   * <code>true</code>, and the brackets of objects and arrays. For events
+   * that do not belong to a token (e.g. {@link JsonEvent#EOF}), the start
+   * and end offsets are the current position of the parser.</p>
+   * <p>In UTF-8 mode (see {@link Utf8JsonFeeder}), offsets are exact
+   * positions in the input bytes. Otherwise, the parser can only see
+   * decoded characters and calculates the offsets from the characters'
+   * lengths in UTF-8. They are exact for UTF-8 and ASCII input but not
+   * for other charsets. Use {@link #getTokenStartCharOffset()} in this
+   * case.</p>
+   * @return the token's start offset in bytes
+   * @since 1.3.0
+   */
+  public long getTokenStartOffset() {
+    return utf8 ? currentStart : currentStart + currentStartExtra;
+  }
+
+  /**
+   * Get the byte offset after the last character of the token that
+   * produced the event returned by the last call to {@link #nextEvent()}
+   * (see {@link #getTokenStartOffset()})
+   * @return the token's end offset in bytes (exclusive)
+   * @since 1.3.0
+   */
+  public long getTokenEndOffset() {
+    return utf8 ? currentEnd : currentEnd + currentEndExtra;
+  }
+
+  /**
+   * Get the character offset of the first character of the token that
+   * produced the event returned by the last call to {@link #nextEvent()}
+   * (see {@link #getTokenStartOffset()}). Characters are counted in
+   * UTF-16 code units.
+   * @return the token's start offset in characters
+   * @since 1.3.0
+   */
+  public long getTokenStartCharOffset() {
+    return utf8 ? currentStart - currentStartExtra : currentStart;
+  }
+
+  /**
+   * Get the character offset after the last character of the token that
+   * produced the event returned by the last call to {@link #nextEvent()}
+   * (see {@link #getTokenStartOffset()}). Characters are counted in
+   * UTF-16 code units.
+   * @return the token's end offset in characters (exclusive)
+   * @since 1.3.0
+   */
+  public long getTokenEndCharOffset() {
+    return utf8 ? currentEnd - currentEndExtra : currentEnd;
+  }
+
+  /**
+   * A read-only view on {@link #currentValue}
+   */
+  private class CurrentValueView implements CharSequence {
+    @Override
+    public int length() {
+      return currentValue.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return currentValue.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return currentValue.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return currentValue.toString();
+    }
   }
 }
@@ -0,0 +1,184 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <p>A thread-safe pool of {@link JsonParser}s. Applications that parse
+ * many small JSON texts (e.g. one per HTTP request) can borrow a parser
+ * from the pool and return it afterwards instead of creating a new parser
+ * every time. Returned parsers are {@link JsonParser#reset() reset} and
+ * keep their buffers. Settings changed by a borrower (e.g. the framing or
+ * the maximum depth) are reverted to the ones of the parsers created by
+ * {@link #createParser()}.</p>
+ * <p>Each thread caches the last parser it has returned, so borrowing and
+ * returning a parser in the same thread does not require any
+ * synchronization. All other parsers are kept in a shared queue with a
+ * bounded capacity. Parsers that do not fit into the queue are discarded.</p>
+ * <pre>
+ * JsonParser parser = pool.borrow();
+ * try {
+ *   // parse JSON text
+ * } finally {
+ *   pool.release(parser);
+ * }
+ * </pre>
+ * <p>Override {@link #createParser()} to configure the parsers (e.g. to
+ * use a different feeder).</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class JsonParserPool {
+  /**
+   * The parsers that are not cached by a thread
+   */
+  private final BlockingQueue<JsonParser> shared;
+
+  /**
+   * The parser cached by the current thread
+   */
+  private final ThreadLocal<JsonParser> cached = new ThreadLocal<>();
+
+  /**
+   * The settings of the parsers created by {@link #createParser()} or
+   * null if no parser has been created yet
+   */
+  private volatile Settings settings;
+
+  /**
+   * Create a pool whose shared queue can hold twice as many parsers as
+   * there are available processors
+   */
+  public JsonParserPool() {
+    this(Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * Create a pool
+   * @param capacity the maximum number of parsers in the shared queue
+   * (in addition to the parsers cached by the threads)
+   */
+  public JsonParserPool(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    shared = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Create a new parser. This method is called if the pool does not
+   * contain a parser that can be borrowed. The default implementation
+   * creates a parser with a {@link DefaultJsonFeeder} for UTF-8.
+   * @return the new parser
+   */
+  protected JsonParser createParser() {
+    return new JsonParser(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Borrow a parser from the pool or create a new one if the pool is empty.
+   * The parser is in its initial state and has the same settings as a
+   * parser created by {@link #createParser()}.
+   * @return the parser
+   */
+  public JsonParser borrow() {
+    JsonParser parser = cached.get();
+    if (parser != null) {
+      cached.set(null);
+      return parser;
+    }
+    parser = shared.poll();
+    if (parser != null) {
+      return parser;
+    }
+    parser = createParser();
+    if (settings == null) {
+      settings = new Settings(parser);
+    }
+    return parser;
+  }
+
+  /**
+   * Reset a parser, revert its settings to the ones of the parsers created
+   * by {@link #createParser()}, and return it to the pool. The parser must
+   * not be used anymore afterwards.
+   * @param parser the parser
+   */
+  public void release(JsonParser parser) {
+    Settings s = settings;
+    if (s != null) {
+      s.apply(parser);
+    }
+    parser.reset();
+    if (cached.get() == null) {
+      cached.set(parser);
+    } else {
+      shared.offer(parser);
+    }
+  }
+
+  /**
+   * @return the number of parsers in the shared queue (not including the
+   * ones cached by the threads)
+   */
+  public int size() {
+    return shared.size();
+  }
+
+  /**
+   * The settings of a parser that a borrower can change
+   */
+  private static final class Settings {
+    private final int maxDepth;
+    private final int framing;
+    private final int stringPartThreshold;
+    private final boolean canonicalizeFieldNames;
+
+    /**
+     * Get the settings of a parser
+     * @param parser the parser
+     */
+    Settings(JsonParser parser) {
+      maxDepth = parser.getMaxDepth();
+      framing = parser.getFraming();
+      stringPartThreshold = parser.getStringPartThreshold();
+      canonicalizeFieldNames = parser.isCanonicalizeFieldNames();
+    }
+
+    /**
+     * Apply the settings to a parser
+     * @param parser the parser
+     */
+    void apply(JsonParser parser) {
+      parser.setMaxDepth(maxDepth);
+      parser.setFraming(framing);
+      parser.setStringPartThreshold(stringPartThreshold);
+      parser.setCanonicalizeFieldNames(canonicalizeFieldNames);
+    }
+  }
+}
@@ -0,0 +1,433 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.util.Arrays;
+
+/**
+ * <p>Wraps around a {@link JsonParser} and only returns the events of
+ * values at selected paths. Everything else is skipped quickly using
+ * {@link JsonParser#skipChildren()}.</p>
+ * <p>Paths are specified as JSON Pointers (RFC 6901), e.g.
+ * <code>/name</code> or <code>/items/0/id</code>. In addition, a segment
+ * consisting of a single <code>*</code> matches any array index and any
+ * field name (e.g. <code>/items/&#42;/id</code>). The empty path matches
+ * the whole JSON text.</p>
+ * <p>For every matching value the filter returns the value's events
+ * (including all events of its children if the value is an object or an
+ * array). If the value is part of an object, the filter returns its
+ * {@link JsonEvent#FIELD_NAME} event first. The events of the enclosing
+ * objects and arrays are not returned. {@link JsonEvent#NEED_MORE_INPUT},
+ * {@link JsonEvent#ERROR} and {@link JsonEvent#EOF} are always returned.
+ * Use {@link #getParser()} to get the values of the events.</p>
+ * <p>Just like the parser, the filter never blocks. Feed it through
+ * {@link #getFeeder()} whenever {@link #nextEvent()} returns
+ * {@link JsonEvent#NEED_MORE_INPUT}.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class JsonPathFilter {
+  /**
+   * The maximum number of paths
+   */
+  private static final int MAX_PATHS = 64;
+
+  /**
+   * The parser providing the events to filter
+   */
+  private final JsonParser parser;
+
+  /**
+   * The unescaped segments of all paths (<code>null</code> for wildcards)
+   */
+  private final String[][] segments;
+
+  /**
+   * The segments of all paths parsed as array indexes (-1 if a segment is
+   * not an array index)
+   */
+  private final int[][] indexes;
+
+  /**
+   * Bit masks of the paths with a given number of segments
+   */
+  private final long[] pathsByLength;
+
+  /**
+   * A bit mask of all paths
+   */
+  private final long allPaths;
+
+  /**
+   * For each open object or array: the paths that might match one of
+   * its children
+   */
+  private long[] candidates = new long[16];
+
+  /**
+   * For each open array: the index of the next element
+   */
+  private int[] arrayIndexes = new int[16];
+
+  /**
+   * For each open object or array: true if it is an array
+   */
+  private boolean[] arrays = new boolean[16];
+
+  /**
+   * The number of open objects and arrays (not including the ones inside
+   * a matching value)
+   */
+  private int level = 0;
+
+  /**
+   * The paths matching the value following the last field name
+   */
+  private long fieldPaths;
+
+  /**
+   * The nesting depth inside a matching object or array (0 if the parser
+   * is not inside a matching value)
+   */
+  private int matchDepth = 0;
+
+  /**
+   * True if the parser skips an object or array
+   */
+  private boolean skipping = false;
+
+  /**
+   * The index of the path that matched the current event
+   */
+  private int currentPathIndex = -1;
+
+  /**
+   * True if the last event was {@link JsonEvent#VALUE_STRING_PART} and the
+   * rest of the string value has not been returned yet
+   */
+  private boolean inStringParts = false;
+
+  /**
+   * The paths matching the string value delivered in parts
+   */
+  private long stringPartMatches;
+
+  /**
+   * Create a new filter
+   * @param parser the parser providing the events to filter
+   * @param paths the paths of the values to return (JSON Pointers, where a
+   * segment <code>*</code> matches any array index and any field name)
+   * @throws IllegalArgumentException if one of the paths is not a valid
+   * JSON Pointer or if there are more than 64 paths
+   */
+  public JsonPathFilter(JsonParser parser, String... paths) {
+    if (paths.length > MAX_PATHS) {
+      throw new IllegalArgumentException("Too many paths. Maximum number " +
+          "is " + MAX_PATHS + ".");
+    }
+
+    this.parser = parser;
+    segments = new String[paths.length][];
+    indexes = new int[paths.length][];
+
+    int maxLength = 0;
+    for (int i = 0; i < paths.length; ++i) {
+      parsePath(i, paths[i]);
+      maxLength = Math.max(maxLength, segments[i].length);
+    }
+
+    pathsByLength = new long[maxLength + 1];
+    long all = 0;
+    for (int i = 0; i < paths.length; ++i) {
+      pathsByLength[segments[i].length] |= 1L << i;
+      all |= 1L << i;
+    }
+    allPaths = all;
+  }
+
+  /**
+   * Split a path into segments and unescape them
+   * @param i the index of the path
+   * @param path the path
+   */
+  private void parsePath(int i, String path) {
+    if (!path.isEmpty() && path.charAt(0) != '/') {
+      throw new IllegalArgumentException("Invalid path: " + path);
+    }
+
+    String[] s = path.isEmpty() ? new String[0] :
+      path.substring(1).split("/", -1);
+    int[] idx = new int[s.length];
+    for (int j = 0; j < s.length; ++j) {
+      if (s[j].equals("*")) {
+        s[j] = null;
+        idx[j] = -1;
+        continue;
+      }
+      s[j] = s[j].replace("~1", "/").replace("~0", "~");
+      idx[j] = parseIndex(s[j]);
+    }
+    segments[i] = s;
+    indexes[i] = idx;
+  }
+
+  /**
+   * Parse a path segment as an array index
+   * @param segment the segment
+   * @return the index or -1 if the segment is not an array index
+   */
+  private static int parseIndex(String segment) {
+    if (segment.isEmpty() || segment.length() > 9 ||
+        (segment.charAt(0) == '0' && segment.length() > 1)) {
+      return -1;
+    }
+    int r = 0;
+    for (int i = 0; i < segment.length(); ++i) {
+      char c = segment.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      r = r * 10 + (c - '0');
+    }
+    return r;
+  }
+
+  /**
+   * @return the parser providing the events to filter
+   */
+  public JsonParser getParser() {
+    return parser;
+  }
+
+  /**
+   * Get the feeder that can be used to provide more input to the parser
+   * @return the parser's feeder
+   */
+  public JsonFeeder getFeeder() {
+    return parser.getFeeder();
+  }
+
+  /**
+   * Get the index of the path that matched the last event returned by
+   * {@link #nextEvent()}. If multiple paths match, the smallest index is
+   * returned.
+   * @return the index of the path in the array given to the constructor
+   * or -1 if the last event did not belong to a matching value (e.g.
+   * {@link JsonEvent#NEED_MORE_INPUT} or {@link JsonEvent#EOF})
+   */
+  public int getCurrentPathIndex() {
+    return currentPathIndex;
+  }
+
+  /**
+   * Proceed parsing the JSON text and return the next event of a value at
+   * one of the selected paths. The method returns
+   * {@link JsonEvent#NEED_MORE_INPUT} if the parser needs more input data.
+   * If the parser accepts multiple top-level values (see
+   * {@link JsonParser#setFraming(int)}), {@link JsonEvent#END_DOCUMENT} is
+   * always returned and the paths are matched against each value.
+   * @return the next JSON event or {@link JsonEvent#NEED_MORE_INPUT} if more
+   * input is needed
+   */
+  public int nextEvent() {
+    while (true) {
+      int event = parser.nextEvent();
+      if (event == JsonEvent.NEED_MORE_INPUT || event == JsonEvent.ERROR ||
+          event == JsonEvent.EOF) {
+        if (matchDepth == 0) {
+          currentPathIndex = -1;
+        }
+        return event;
+      }
+
+      if (event == JsonEvent.END_DOCUMENT) {
+        // the next top-level value is matched from the start again
+        level = 0;
+        matchDepth = 0;
+        skipping = false;
+        inStringParts = false;
+        fieldPaths = 0;
+        currentPathIndex = -1;
+        return event;
+      }
+
+      boolean start = (event == JsonEvent.START_OBJECT ||
+          event == JsonEvent.START_ARRAY);
+      boolean end = (event == JsonEvent.END_OBJECT ||
+          event == JsonEvent.END_ARRAY);
+
+      if (matchDepth > 0) {
+        // inside a matching value
+        if (start) {
+          ++matchDepth;
+        } else if (end) {
+          --matchDepth;
+        }
+        return event;
+      }
+
+      if (end) {
+        if (skipping) {
+          skipping = false;
+        } else {
+          --level;
+        }
+        continue;
+      }
+
+      if (event == JsonEvent.FIELD_NAME) {
+        fieldPaths = matchField(candidates[level], level - 1);
+        long matches = fieldPaths & pathsWithLength(level);
+        if (matches != 0) {
+          currentPathIndex = Long.numberOfTrailingZeros(matches);
+          return event;
+        }
+        continue;
+      }
+
+      if (inStringParts) {
+        // the rest of a string value delivered in parts
+        inStringParts = (event == JsonEvent.VALUE_STRING_PART);
+        if (stringPartMatches != 0) {
+          return event;
+        }
+        continue;
+      }
+
+      // the event is the start of a value. find paths matching it.
+      long paths;
+      if (level == 0) {
+        paths = allPaths;
+      } else if (arrays[level]) {
+        paths = matchIndex(candidates[level], level - 1,
+            arrayIndexes[level]++);
+      } else {
+        paths = fieldPaths;
+      }
+
+      long matches = paths & pathsWithLength(level);
+      if (event == JsonEvent.VALUE_STRING_PART) {
+        inStringParts = true;
+        stringPartMatches = matches;
+      }
+      if (matches != 0) {
+        currentPathIndex = Long.numberOfTrailingZeros(matches);
+        if (start) {
+          matchDepth = 1;
+        }
+        return event;
+      }
+
+      if (start) {
+        if (paths == 0) {
+          // no path leads into this object or array
+          parser.skipChildren();
+          skipping = true;
+        } else {
+          push(paths, event == JsonEvent.START_ARRAY);
+        }
+      }
+    }
+  }
+
+  /**
+   * Enter an object or array
+   * @param paths the paths that might match one of its children
+   * @param array true if the value is an array
+   */
+  private void push(long paths, boolean array) {
+    ++level;
+    if (level == candidates.length) {
+      candidates = Arrays.copyOf(candidates, level * 2);
+      arrayIndexes = Arrays.copyOf(arrayIndexes, level * 2);
+      arrays = Arrays.copyOf(arrays, level * 2);
+    }
+    candidates[level] = paths;
+    arrayIndexes[level] = 0;
+    arrays[level] = array;
+  }
+
+  /**
+   * Get a bit mask of all paths with the given number of segments
+   * @param length the number of segments
+   * @return the bit mask
+   */
+  private long pathsWithLength(int length) {
+    return length < pathsByLength.length ? pathsByLength[length] : 0;
+  }
+
+  /**
+   * Find paths whose segment at the given position matches the current
+   * field name
+   * @param paths the paths to check
+   * @param segment the position of the segment
+   * @return the paths that match
+   */
+  private long matchField(long paths, int segment) {
+    CharSequence name = parser.getCurrentCharSequence();
+    long result = 0;
+    while (paths != 0) {
+      int i = Long.numberOfTrailingZeros(paths);
+      paths &= paths - 1;
+      String s = segments[i][segment];
+      if (s == null || contentEquals(s, name)) {
+        result |= 1L << i;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find paths whose segment at the given position matches an array index
+   * @param paths the paths to check
+   * @param segment the position of the segment
+   * @param index the array index
+   * @return the paths that match
+   */
+  private long matchIndex(long paths, int segment, int index) {
+    long result = 0;
+    while (paths != 0) {
+      int i = Long.numberOfTrailingZeros(paths);
+      paths &= paths - 1;
+      if (segments[i][segment] == null || indexes[i][segment] == index) {
+        result |= 1L << i;
+      }
+    }
+    return result;
+  }
+
+  private static boolean contentEquals(String s, CharSequence chars) {
+    int len = s.length();
+    if (len != chars.length()) {
+      return false;
+    }
+    for (int i = 0; i < len; ++i) {
+      if (s.charAt(i) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
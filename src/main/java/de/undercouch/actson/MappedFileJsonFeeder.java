@@ -0,0 +1,153 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * <p>A {@link JsonFeeder} that provides the {@link JsonParser} with the
+ * contents of a file. The file is mapped into memory in large windows
+ * through {@link FileChannel#map(FileChannel.MapMode, long, long)} and the
+ * parser's input is decoded directly from the mapped region. There are no
+ * read system calls and no copies. The operating system's page cache does
+ * the work.</p>
+ * <p>Call {@link #feedNextWindow()} whenever the parser returns
+ * {@link JsonEvent#NEED_MORE_INPUT}. The feeder then maps the next window
+ * of the file. After the last window it calls {@link #done()}
+ * automatically:</p>
+ * <pre>
+ * try (FileChannel channel = FileChannel.open(path)) {
+ *   MappedFileJsonFeeder feeder = new MappedFileJsonFeeder(channel,
+ *       StandardCharsets.UTF_8);
+ *   JsonParser parser = new JsonParser(feeder);
+ *   int event;
+ *   do {
+ *     while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+ *       feeder.feedNextWindow();
+ *     }
+ *     // handle event
+ *   } while (event != JsonEvent.EOF &amp;&amp; event != JsonEvent.ERROR);
+ * }
+ * </pre>
+ * <p>Windows that have been consumed are released by the garbage collector.
+ * This allows files much larger than the available address space to be
+ * parsed.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class MappedFileJsonFeeder extends ByteBufferJsonFeeder {
+  /**
+   * The default size of a mapped window (64 MB)
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final int windowSize;
+  private final long size;
+
+  /**
+   * The position of the next window in the file
+   */
+  private long position;
+
+  /**
+   * Constructs a feeder that maps the whole contents of the given file
+   * @param channel the file to parse
+   * @param charset the charset that should be used to decode the file
+   * @throws IOException if the size of the file could not be determined
+   */
+  public MappedFileJsonFeeder(FileChannel channel, Charset charset)
+      throws IOException {
+    this(channel, charset, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Constructs a feeder that maps the whole contents of the given file
+   * @param channel the file to parse
+   * @param charset the charset that should be used to decode the file
+   * @param windowSize the maximum number of bytes to map at once
+   * @throws IOException if the size of the file could not be determined
+   */
+  public MappedFileJsonFeeder(FileChannel channel, Charset charset,
+      int windowSize) throws IOException {
+    super(charset);
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Window size must be positive");
+    }
+    this.channel = channel;
+    this.windowSize = windowSize;
+    this.size = channel.size();
+  }
+
+  /**
+   * Map the next window of the file and feed it to the parser. Call this
+   * method when the parser returns {@link JsonEvent#NEED_MORE_INPUT}. The
+   * method does nothing if the previous window has not been consumed
+   * completely yet.
+   * @return false if the whole file has already been fed to the parser
+   * @throws IOException if the file could not be mapped
+   */
+  public boolean feedNextWindow() throws IOException {
+    if (position >= size) {
+      done();
+      return false;
+    }
+    if (isFull()) {
+      return true;
+    }
+
+    int n = (int)Math.min(windowSize, size - position);
+    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+        position, n);
+    feed(window);
+    position += n;
+
+    if (position >= size) {
+      done();
+    }
+    return true;
+  }
+
+  /**
+   * Reset the feeder so that the next call to {@link #feedNextWindow()}
+   * maps the beginning of the file again
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    position = 0;
+  }
+
+  /**
+   * @return the number of bytes of the file mapped and fed to the
+   * parser so far
+   */
+  public long getMappedByteCount() {
+    return position;
+  }
+}
@@ -0,0 +1,438 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>Parses a fully available UTF-8 encoded JSON text whose top-level value
+ * is an array on multiple cores. This is useful for large dumps consisting
+ * of a single array of records.</p>
+ * <p>The parser speculatively splits the array into chunks of roughly
+ * {@link #setChunkSize(int) chunk size} bytes. A split point is a comma
+ * followed by a character that looks like the start of the array's first
+ * element (e.g. <code>,{</code> for an array of objects). Every chunk is
+ * parsed by its own {@link JsonParser} on a {@link ForkJoinPool}. The
+ * parser of a chunk continues until it reaches the first element that
+ * starts after the next split point. Since it knows exactly where strings
+ * start and end and how deep the current element is nested, it can tell
+ * if the split point really separated two elements of the top-level array
+ * or if it was inside a string or a nested value. In the latter case, the
+ * next chunk is discarded and parsed again from the real boundary.</p>
+ * <p>The events are delivered to a {@link JsonEventBatchHandler} in the
+ * order of the JSON text. They are exactly the same as the ones a single
+ * {@link JsonParser} would produce, including {@link JsonEvent#EOF} or
+ * {@link JsonEvent#ERROR} at the end. The handler is always called from
+ * the thread that called {@link #parse(JsonEventBatchHandler)}.</p>
+ * <pre>
+ * ParallelArrayParser parser = new ParallelArrayParser(json);
+ * parser.parse(new JsonEventBatchHandler() {
+ *   &#64;Override
+ *   public void handle(JsonEventBatch batch) {
+ *     // process events
+ *   }
+ * });
+ * </pre>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class ParallelArrayParser {
+  /**
+   * The default size of a chunk (1 MB)
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+  /**
+   * The capacity of the batches delivered to the handler
+   */
+  private static final int BATCH_CAPACITY = 1024;
+
+  /**
+   * The capacity of the feeders of the chunk parsers
+   */
+  private static final int FEEDER_CAPACITY = 64 * 1024;
+
+  /**
+   * The input fed to chunk parsers that start at a split point (i.e. a
+   * comma). It puts them into the same state as a parser that has just
+   * parsed an element of the top-level array.
+   */
+  private static final byte[] CHUNK_PREFIX = { '[', '0' };
+
+  /**
+   * A stop position meaning that a chunk should be parsed until the end
+   */
+  private static final int NO_SPLIT = Integer.MAX_VALUE;
+
+  private final ByteBuffer json;
+  private final int begin;
+  private final int end;
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private int maxDepth = 2048;
+
+  /**
+   * The first character of the array's first element or -1 if the JSON
+   * text does not start with an array
+   */
+  private int elementStart = -1;
+
+  /**
+   * Create a new parser
+   * @param json the UTF-8 encoded JSON text to parse
+   */
+  public ParallelArrayParser(byte[] json) {
+    this(ByteBuffer.wrap(json));
+  }
+
+  /**
+   * Create a new parser. The parser reads the bytes between the buffer's
+   * position and its limit. The buffer's position will not be changed.
+   * The buffer may be a direct or a memory-mapped buffer.
+   * @param json the UTF-8 encoded JSON text to parse
+   */
+  public ParallelArrayParser(ByteBuffer json) {
+    this.json = json.duplicate();
+    this.begin = json.position();
+    this.end = json.limit();
+  }
+
+  /**
+   * Set the size of the chunks the array is split into
+   * @param chunkSize the chunk size in bytes
+   */
+  public void setChunkSize(int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * @return the size of the chunks the array is split into
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Set the maximum number of nested objects/arrays in the JSON text
+   * @param depth the maximum depth
+   * @see JsonParser#setMaxDepth(int)
+   */
+  public void setMaxDepth(int depth) {
+    this.maxDepth = depth;
+  }
+
+  /**
+   * @return the maximum number of nested objects/arrays in the JSON text
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Parse the JSON text on a new {@link ForkJoinPool} with as many threads
+   * as there are available processors
+   * @param handler the handler receiving the events
+   */
+  public void parse(JsonEventBatchHandler handler) {
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      parse(pool, handler);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Parse the JSON text on the given pool
+   * @param pool the pool executing the chunk parsers
+   * @param handler the handler receiving the events
+   */
+  public void parse(ForkJoinPool pool, JsonEventBatchHandler handler) {
+    elementStart = findElementStart();
+
+    int window = Math.max(pool.getParallelism() * 2, 2);
+    Deque<ChunkTask> tasks = new ArrayDeque<>();
+    int nextStart = begin;
+    try {
+      int stop = nextSplit(begin);
+      ChunkTask current = new ChunkTask(begin, stop, true);
+      pool.execute(current);
+      nextStart = stop;
+
+      while (true) {
+        // speculatively parse the next chunks
+        while (tasks.size() < window && nextStart != NO_SPLIT) {
+          stop = nextSplit(nextStart);
+          ChunkTask t = new ChunkTask(nextStart, stop, false);
+          pool.execute(t);
+          tasks.add(t);
+          nextStart = stop;
+        }
+
+        Chunk chunk = current.join();
+        for (JsonEventBatch batch : chunk.batches) {
+          if (batch.size() > 0) {
+            handler.handle(batch);
+          }
+        }
+        if (chunk.end == NO_SPLIT) {
+          break;
+        }
+
+        // find the chunk starting at the real end of the current one
+        current = null;
+        while (!tasks.isEmpty() && tasks.peek().start <= chunk.end) {
+          ChunkTask t = tasks.poll();
+          if (t.start == chunk.end) {
+            current = t;
+            break;
+          }
+          t.abort();
+        }
+
+        if (current == null) {
+          // the split point was wrong
+          if (tasks.isEmpty()) {
+            stop = nextSplit(chunk.end);
+            nextStart = stop;
+          } else {
+            stop = tasks.peek().start;
+          }
+          current = new ChunkTask(chunk.end, stop, false);
+          pool.execute(current);
+        }
+      }
+    } finally {
+      for (ChunkTask t : tasks) {
+        t.abort();
+      }
+    }
+  }
+
+  /**
+   * Find the first character of the array's first element
+   * @return the character or -1 if the JSON text does not start with an
+   * array or if the array is empty
+   */
+  private int findElementStart() {
+    int i = skipWhitespace(begin);
+    if (i == end || json.get(i) != '[') {
+      return -1;
+    }
+    i = skipWhitespace(i + 1);
+    if (i == end || json.get(i) == ']') {
+      return -1;
+    }
+    return json.get(i);
+  }
+
+  /**
+   * Find the next split point, i.e. the next comma followed by the first
+   * character of an element, at least {@link #chunkSize} bytes after the
+   * given position
+   * @param pos the position
+   * @return the position of the comma or {@link #NO_SPLIT} if there is no
+   * more split point
+   */
+  private int nextSplit(int pos) {
+    if (elementStart < 0 || end - pos <= chunkSize) {
+      return NO_SPLIT;
+    }
+    for (int i = pos + chunkSize; i < end; ++i) {
+      if (json.get(i) == ',') {
+        int j = skipWhitespace(i + 1);
+        if (j < end && json.get(j) == elementStart) {
+          return i;
+        }
+      }
+    }
+    return NO_SPLIT;
+  }
+
+  private int skipWhitespace(int i) {
+    while (i < end && isWhitespace(json.get(i))) {
+      ++i;
+    }
+    return i;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+  }
+
+  /**
+   * Check if an event is the first event of a value
+   * @param event the event
+   * @return true if the event starts a value
+   */
+  private static boolean isValueStart(int event) {
+    switch (event) {
+    case JsonEvent.START_OBJECT:
+    case JsonEvent.START_ARRAY:
+    case JsonEvent.VALUE_STRING:
+    case JsonEvent.VALUE_INT:
+    case JsonEvent.VALUE_DOUBLE:
+    case JsonEvent.VALUE_TRUE:
+    case JsonEvent.VALUE_FALSE:
+    case JsonEvent.VALUE_NULL:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * The events of a parsed chunk
+   */
+  private static class Chunk {
+    /**
+     * The events
+     */
+    final List<JsonEventBatch> batches = new ArrayList<>();
+
+    /**
+     * The position of the comma after the chunk's last element or
+     * {@link #NO_SPLIT} if the chunk has been parsed until the end of the
+     * JSON text (or until an error occurred)
+     */
+    int end = NO_SPLIT;
+  }
+
+  /**
+   * Parses a chunk starting at the beginning of the JSON text or at a split
+   * point until the first element of the top-level array that starts after
+   * {@link #stop}
+   */
+  private class ChunkTask extends RecursiveTask<Chunk> {
+    private static final long serialVersionUID = -2253826146924917815L;
+
+    final int start;
+    private final int stop;
+    private final boolean first;
+    private volatile boolean aborted;
+
+    ChunkTask(int start, int stop, boolean first) {
+      this.start = start;
+      this.stop = stop;
+      this.first = first;
+    }
+
+    /**
+     * Abort the task because its result is not needed anymore
+     */
+    void abort() {
+      aborted = true;
+      cancel(false);
+    }
+
+    @Override
+    protected Chunk compute() {
+      Utf8JsonFeeder feeder = new Utf8JsonFeeder(FEEDER_CAPACITY);
+      JsonParser parser = new JsonParser(feeder);
+      parser.setMaxDepth(maxDepth);
+
+      ByteBuffer input = json.duplicate();
+      input.limit(end);
+      input.position(start);
+
+      int prefix = 0;
+      int skip = 0;
+      int depth = 0;
+      boolean array = false;
+      if (!first) {
+        prefix = feeder.feed(CHUNK_PREFIX);
+        skip = CHUNK_PREFIX.length;
+      }
+
+      Chunk chunk = new Chunk();
+      JsonEventBatch batch = new JsonEventBatch(BATCH_CAPACITY);
+      chunk.batches.add(batch);
+      int elements = 0;
+      int event;
+      do {
+        event = parser.nextEvent();
+        if (event == JsonEvent.NEED_MORE_INPUT) {
+          if (aborted) {
+            return null;
+          }
+          feeder.feed(input);
+          if (!input.hasRemaining()) {
+            feeder.done();
+          }
+          continue;
+        }
+
+        if (depth == 0 && event == JsonEvent.START_ARRAY) {
+          array = true;
+        } else if (depth == 1 && array && isValueStart(event)) {
+          long offset = start - prefix + parser.getTokenStartOffset();
+          if (elements > 0 && offset > stop) {
+            // the chunk ends at the comma before this element
+            int i = (int)offset - 1;
+            while (isWhitespace(json.get(i))) {
+              --i;
+            }
+            chunk.end = i;
+            break;
+          }
+          ++elements;
+        }
+
+        if (event == JsonEvent.START_OBJECT ||
+            event == JsonEvent.START_ARRAY) {
+          ++depth;
+        } else if (event == JsonEvent.END_OBJECT ||
+            event == JsonEvent.END_ARRAY) {
+          --depth;
+        }
+
+        if (skip > 0) {
+          // do not deliver events produced by the prefix
+          --skip;
+          if (skip == 0) {
+            elements = 0;
+          }
+          continue;
+        }
+
+        if (batch.isFull()) {
+          batch = new JsonEventBatch(BATCH_CAPACITY);
+          chunk.batches.add(batch);
+        }
+        parser.addCurrentEvent(batch, event);
+      } while (event != JsonEvent.EOF && event != JsonEvent.ERROR);
+
+      return chunk;
+    }
+  }
+}
@@ -0,0 +1,393 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>Parses newline-delimited JSON (JSON Lines) on multiple cores. The
+ * input is read from a channel (e.g. a {@link java.nio.channels.FileChannel}
+ * or a stream wrapped with
+ * {@link java.nio.channels.Channels#newChannel(java.io.InputStream)}) in
+ * blocks of roughly {@link #setBlockSize(int) block size} bytes. Every
+ * block ends at a line break. The blocks are parsed on a
+ * {@link ForkJoinPool}. Each worker thread keeps one {@link JsonParser}
+ * with {@link JsonFraming#LINE_DELIMITED} framing and reuses it for all
+ * blocks it parses.</p>
+ * <p>The events are delivered to a {@link JsonEventBatchHandler} in the
+ * thread that called {@link #parse(JsonEventBatchHandler)}. In ordered
+ * mode (the default), the events are exactly the same as the ones a single
+ * parser would produce: one {@link JsonEvent#END_DOCUMENT} after each
+ * value and {@link JsonEvent#EOF} at the end. Blocks that have been parsed
+ * ahead are kept until all blocks before them have been delivered. In
+ * unordered mode (see {@link #setOrdered(boolean)}), the events of a block
+ * are delivered as soon as the block has been parsed. The events of the
+ * values within a block still appear in input order.</p>
+ * <p>Parsing stops at the first {@link JsonEvent#ERROR}. Blocks that are
+ * still being parsed are then aborted. Every value has
+ * to be on its own line. In contrast to a single parser, line breaks
+ * inside values are not allowed.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class ParallelLineParser {
+  /**
+   * The default size of a block (1 MB)
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  /**
+   * The capacity of the batches delivered to the handler
+   */
+  private static final int BATCH_CAPACITY = 1024;
+
+  /**
+   * The capacity of the feeders of the worker's parsers
+   */
+  private static final int FEEDER_CAPACITY = 64 * 1024;
+
+  private final ReadableByteChannel channel;
+  private int blockSize = DEFAULT_BLOCK_SIZE;
+  private boolean ordered = true;
+  private int maxDepth = 2048;
+
+  /**
+   * The parsers of the worker threads
+   */
+  private final ThreadLocal<JsonParser> parsers = new ThreadLocal<>();
+
+  /**
+   * Create a new parser
+   * @param channel the channel providing the UTF-8 encoded JSON text
+   */
+  public ParallelLineParser(ReadableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Set the size of the blocks the input is split into
+   * @param blockSize the block size in bytes
+   */
+  public void setBlockSize(int blockSize) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size must be positive");
+    }
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * @return the size of the blocks the input is split into
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Specify whether events should be delivered in input order or as soon
+   * as they are available
+   * @param ordered true if the events should be delivered in input order
+   */
+  public void setOrdered(boolean ordered) {
+    this.ordered = ordered;
+  }
+
+  /**
+   * @return true if events are delivered in input order
+   */
+  public boolean isOrdered() {
+    return ordered;
+  }
+
+  /**
+   * Set the maximum number of nested objects/arrays in a value
+   * @param depth the maximum depth
+   * @see JsonParser#setMaxDepth(int)
+   */
+  public void setMaxDepth(int depth) {
+    this.maxDepth = depth;
+  }
+
+  /**
+   * @return the maximum number of nested objects/arrays in a value
+   */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Parse the input on a new {@link ForkJoinPool} with as many threads as
+   * there are available processors
+   * @param handler the handler receiving the events
+   * @throws IOException if the input could not be read
+   */
+  public void parse(JsonEventBatchHandler handler) throws IOException {
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      parse(pool, handler);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Parse the input on the given pool
+   * @param pool the pool executing the parsers
+   * @param handler the handler receiving the events
+   * @throws IOException if the input could not be read
+   */
+  public void parse(ForkJoinPool pool, JsonEventBatchHandler handler)
+      throws IOException {
+    int window = Math.max(pool.getParallelism() * 2, 2);
+    Deque<BlockTask> tasks = new ArrayDeque<>();
+    BlockingQueue<BlockTask> completed = (ordered ? null :
+        new LinkedBlockingQueue<BlockTask>());
+
+    try {
+      byte[] carry = new byte[0];
+      int carryLength = 0;
+      boolean last = false;
+      while (!last) {
+        // read the next block
+        byte[] block = new byte[Math.max(blockSize, carryLength * 2)];
+        System.arraycopy(carry, 0, block, 0, carryLength);
+        ByteBuffer buf = ByteBuffer.wrap(block);
+        buf.position(carryLength);
+        while (buf.hasRemaining()) {
+          if (channel.read(buf) < 0) {
+            last = true;
+            break;
+          }
+        }
+
+        int length = buf.position();
+        if (!last) {
+          // cut the block after the last line break
+          int end = length;
+          while (end > 0 && block[end - 1] != '\n') {
+            --end;
+          }
+          carry = block;
+          carryLength = length;
+          if (end == 0) {
+            // the line does not fit into the block
+            continue;
+          }
+          carryLength = length - end;
+          carry = new byte[Math.max(carryLength, 16)];
+          System.arraycopy(block, end, carry, 0, carryLength);
+          length = end;
+        }
+
+        BlockTask task = new BlockTask(block, length, last, completed);
+        pool.execute(task);
+        tasks.add(task);
+
+        if (tasks.size() >= window || last) {
+          // deliver results to make room for more blocks
+          int n = (last ? tasks.size() : 1);
+          for (int i = 0; i < n; ++i) {
+            if (!deliver(next(tasks, completed), handler)) {
+              return;
+            }
+          }
+        }
+      }
+
+      JsonEventBatch eof = new JsonEventBatch(1);
+      eof.add(JsonEvent.EOF, null);
+      handler.handle(eof);
+    } finally {
+      // do not keep the pool busy with blocks nobody is interested in
+      for (BlockTask t : tasks) {
+        t.abort();
+      }
+    }
+  }
+
+  /**
+   * Wait for the next block to deliver
+   * @param tasks the tasks that have not been delivered yet
+   * @param completed the tasks that have completed (only in unordered
+   * mode, null otherwise)
+   * @return the events of the next block
+   * @throws InterruptedIOException if the thread was interrupted while
+   * waiting
+   */
+  private static List<JsonEventBatch> next(Deque<BlockTask> tasks,
+      BlockingQueue<BlockTask> completed) throws InterruptedIOException {
+    if (completed == null) {
+      return tasks.poll().join();
+    }
+    BlockTask task;
+    try {
+      task = completed.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    tasks.remove(task);
+    return task.join();
+  }
+
+  /**
+   * Deliver the events of a block to the handler
+   * @param batches the events
+   * @param handler the handler
+   * @return false if an error has been delivered
+   */
+  private static boolean deliver(List<JsonEventBatch> batches,
+      JsonEventBatchHandler handler) {
+    for (JsonEventBatch batch : batches) {
+      if (batch.size() > 0) {
+        handler.handle(batch);
+        if (batch.getEvents()[batch.size() - 1] == JsonEvent.ERROR) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the parser of the current worker thread or create a new one
+   * @return the parser
+   */
+  private JsonParser parser() {
+    JsonParser parser = parsers.get();
+    if (parser == null) {
+      parser = new JsonParser(new Utf8JsonFeeder(FEEDER_CAPACITY));
+      parser.setFraming(JsonFraming.LINE_DELIMITED);
+      parser.setMaxDepth(maxDepth);
+      parsers.set(parser);
+    }
+    return parser;
+  }
+
+  /**
+   * Parses a block of lines
+   */
+  private class BlockTask extends RecursiveTask<List<JsonEventBatch>> {
+    private static final long serialVersionUID = 5386178416254385930L;
+
+    private final byte[] block;
+    private final int length;
+    private final boolean last;
+    private final BlockingQueue<BlockTask> completed;
+    private volatile boolean aborted;
+
+    BlockTask(byte[] block, int length, boolean last,
+        BlockingQueue<BlockTask> completed) {
+      this.block = block;
+      this.length = length;
+      this.last = last;
+      this.completed = completed;
+    }
+
+    /**
+     * Abort the task because its result is not needed anymore
+     */
+    void abort() {
+      aborted = true;
+      cancel(false);
+    }
+
+    @Override
+    protected List<JsonEventBatch> compute() {
+      try {
+        return parseBlock();
+      } finally {
+        if (completed != null) {
+          completed.add(this);
+        }
+      }
+    }
+
+    private List<JsonEventBatch> parseBlock() {
+      JsonParser parser = parser();
+      JsonFeeder feeder = parser.getFeeder();
+      List<JsonEventBatch> result = new ArrayList<>();
+      JsonEventBatch batch = new JsonEventBatch(BATCH_CAPACITY);
+      result.add(batch);
+
+      int i = 0;
+      int event;
+      while (true) {
+        event = parser.nextEvent();
+        if (event == JsonEvent.NEED_MORE_INPUT) {
+          if (aborted) {
+            parser.reset();
+            return result;
+          }
+          if (i < length) {
+            i += feeder.feed(block, i, length - i);
+            continue;
+          }
+          if (last) {
+            feeder.done();
+            continue;
+          }
+          break;
+        }
+        if (event == JsonEvent.EOF) {
+          // the EOF event is delivered after all blocks
+          parser.reset();
+          break;
+        }
+
+        if (batch.isFull()) {
+          batch = new JsonEventBatch(BATCH_CAPACITY);
+          result.add(batch);
+        }
+        parser.addCurrentEvent(batch, event);
+        if (event == JsonEvent.ERROR) {
+          parser.reset();
+          return result;
+        }
+      }
+
+      if (!last && !parser.isBetweenDocuments()) {
+        // the last value of the block continues on the next line
+        if (batch.isFull()) {
+          batch = new JsonEventBatch(BATCH_CAPACITY);
+          result.add(batch);
+        }
+        batch.add(JsonEvent.ERROR, null);
+        parser.reset();
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.UnmappableCharacterException;
+
+/**
+ * <p>A {@link JsonFeeder} backed by a ring buffer. In contrast to
+ * {@link DefaultJsonFeeder}, bytes that have not been decoded yet are
+ * never moved to the front of the buffer. Feeding and decoding only advance
+ * separate write and read indices.</p>
+ * <p>The capacity of the ring buffer is always a power of two. The first
+ * few bytes of the ring buffer are mirrored behind its end, so a character
+ * that wraps around the end of the buffer can be decoded in one go.
+ * {@link #isFull()} reflects the true free space of the buffer.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class RingBufferJsonFeeder implements BulkJsonFeeder {
+  /**
+   * The maximum number of bytes mirrored behind the end of the ring buffer.
+   * Must be at least as large as the longest byte sequence of a single
+   * character.
+   */
+  private static final int MAX_MIRROR = 16;
+
+  private final byte[] ring;
+  private final int mask;
+
+  /**
+   * The number of bytes actually mirrored (never more than the capacity)
+   */
+  private final int mirror;
+  private final ByteBuffer byteView;
+  private final CharBuffer charBuf;
+  private final CharsetDecoder decoder;
+  private boolean done = false;
+
+  /**
+   * The total number of bytes decoded so far (the read index)
+   */
+  private int read = 0;
+
+  /**
+   * The total number of bytes fed so far (the write index)
+   */
+  private int write = 0;
+
+  /**
+   * Constructs a feeder
+   * @param charset the charset that should be used to decode input data
+   */
+  public RingBufferJsonFeeder(Charset charset) {
+    this(charset, 1024);
+  }
+
+  /**
+   * Constructs a feeder
+   * @param charset the charset that should be used to decode input data
+   * @param capacity the capacity of the ring buffer (will be rounded up to
+   * the next power of two)
+   */
+  public RingBufferJsonFeeder(Charset charset, int capacity) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    int c = Integer.highestOneBit(capacity);
+    if (c < capacity) {
+      c <<= 1;
+    }
+    mirror = Math.min(MAX_MIRROR, c);
+    ring = new byte[c + mirror];
+    mask = c - 1;
+    byteView = ByteBuffer.wrap(ring);
+    charBuf = CharBuffer.allocate(c * 2);
+    charBuf.limit(0);
+    decoder = charset.newDecoder();
+  }
+
+  /**
+   * @return the capacity of the ring buffer
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  @Override
+  public void feed(byte b) {
+    if (isFull()) {
+      throw new IllegalStateException("JSON parser is full");
+    }
+    int i = write & mask;
+    ring[i] = b;
+    if (i < mirror) {
+      ring[i + mask + 1] = b;
+    }
+    ++write;
+  }
+
+  @Override
+  public int feed(byte[] buf) {
+    return feed(buf, 0, buf.length);
+  }
+
+  @Override
+  public int feed(byte[] buf, int offset, int len) {
+    int n = Math.min(len, mask + 1 - (write - read));
+    int i = write & mask;
+    int first = Math.min(n, mask + 1 - i);
+    System.arraycopy(buf, offset, ring, i, first);
+    if (first < n) {
+      System.arraycopy(buf, offset + first, ring, 0, n - first);
+    }
+    write += n;
+    updateMirror(i, first, n - first);
+    return n;
+  }
+
+  @Override
+  public int feed(ByteBuffer buf) {
+    int n = Math.min(buf.remaining(), mask + 1 - (write - read));
+    int i = write & mask;
+    int first = Math.min(n, mask + 1 - i);
+    buf.get(ring, i, first);
+    if (first < n) {
+      buf.get(ring, 0, n - first);
+    }
+    write += n;
+    updateMirror(i, first, n - first);
+    return n;
+  }
+
+  /**
+   * Copy bytes written to the beginning of the ring buffer to the mirror
+   * region behind its end
+   * @param start the index of the first byte written
+   * @param first the number of bytes written from <code>start</code> on
+   * @param wrapped the number of bytes written to the beginning of the
+   * buffer after wrapping around its end
+   */
+  private void updateMirror(int start, int first, int wrapped) {
+    int capacity = mask + 1;
+    if (start < mirror) {
+      System.arraycopy(ring, start, ring, start + capacity,
+          Math.min(start + first, mirror) - start);
+    }
+    if (wrapped > 0) {
+      System.arraycopy(ring, 0, ring, capacity, Math.min(wrapped, mirror));
+    }
+  }
+
+  @Override
+  public void done() {
+    done = true;
+  }
+
+  @Override
+  public void reset() {
+    read = 0;
+    write = 0;
+    charBuf.clear();
+    charBuf.limit(0);
+    decoder.reset();
+    done = false;
+  }
+
+  @Override
+  public boolean isFull() {
+    return write - read == mask + 1;
+  }
+
+  @Override
+  public boolean hasInput() throws CharacterCodingException {
+    return fillBuffer();
+  }
+
+  @Override
+  public boolean isDone() throws CharacterCodingException {
+    return done && !hasInput();
+  }
+
+  @Override
+  public char nextInput() throws CharacterCodingException {
+    if (!hasInput()) {
+      throw new IllegalStateException("Not enough input data");
+    }
+    return charBuf.get();
+  }
+
+  @Override
+  public char[] getWindow() {
+    return charBuf.array();
+  }
+
+  @Override
+  public int getWindowPosition() {
+    return charBuf.position();
+  }
+
+  @Override
+  public int getWindowLimit() {
+    return charBuf.limit();
+  }
+
+  @Override
+  public void setWindowPosition(int position) {
+    charBuf.position(position);
+  }
+
+  @Override
+  public Charset getCharset() {
+    return decoder.charset();
+  }
+
+  /**
+   * Decode bytes from {@link #ring} and fill {@link #charBuf}. This method
+   * is a no-op if {@link #charBuf} is not empty or if there are no bytes to
+   * decode.
+   * @return true if the buffer contains characters now, false if it's
+   * still empty
+   * @throws CharacterCodingException if the input data contains invalid
+   * characters
+   */
+  private boolean fillBuffer() throws CharacterCodingException {
+    if (charBuf.hasRemaining()) {
+      return true;
+    }
+    int available = write - read;
+    if (available == 0) {
+      return false;
+    }
+
+    // decode the contiguous region starting at the read index. The region
+    // may extend into the mirror behind the end of the buffer.
+    int start = read & mask;
+    int end = Math.min(start + available, mask + 1 + mirror);
+    byteView.limit(end);
+    byteView.position(start);
+
+    charBuf.clear();
+    CoderResult result = decoder.decode(byteView, charBuf,
+        done && end - start == available);
+    if (result.isMalformed()) {
+      throw new MalformedInputException(result.length());
+    }
+    if (result.isUnmappable()) {
+      throw new UnmappableCharacterException(result.length());
+    }
+
+    read += byteView.position() - start;
+    charBuf.flip();
+    return charBuf.hasRemaining();
+  }
+}
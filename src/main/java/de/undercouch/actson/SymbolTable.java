@@ -0,0 +1,114 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+/**
+ * <p>A table of canonical strings used by the {@link JsonParser} to avoid
+ * creating a new string for every field name.</p>
+ * <p>The table uses open addressing with linear probing. It stops accepting
+ * new symbols if it is full. This protects it from documents with a huge
+ * number of distinct field names.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+final class SymbolTable {
+  /**
+   * The default maximum number of symbols
+   */
+  static final int DEFAULT_MAX_SIZE = 1024;
+
+  /**
+   * Names longer than this are never added to the table
+   */
+  private static final int MAX_SYMBOL_LENGTH = 256;
+
+  private final String[] symbols;
+  private final int[] hashes;
+  private final int mask;
+  private final int maxSize;
+  private int size;
+
+  /**
+   * Create a new symbol table
+   * @param maxSize the maximum number of symbols in the table
+   */
+  SymbolTable(int maxSize) {
+    int capacity = Integer.highestOneBit(Math.max(maxSize, 8) - 1) << 2;
+    symbols = new String[capacity];
+    hashes = new int[capacity];
+    mask = capacity - 1;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Get the canonical instance of the given characters. Add a new one if the
+   * table does not contain the characters yet.
+   * @param chars the characters to look up
+   * @param hash the hash of the characters (calculated as in
+   * {@link String#hashCode()})
+   * @return the canonical string
+   */
+  String lookup(CharSequence chars, int hash) {
+    int len = chars.length();
+    int i = (hash ^ (hash >>> 16)) & mask;
+    String s;
+    while ((s = symbols[i]) != null) {
+      if (hashes[i] == hash && s.length() == len && equals(s, chars, len)) {
+        return s;
+      }
+      i = (i + 1) & mask;
+    }
+    s = chars.toString();
+    if (size < maxSize && len <= MAX_SYMBOL_LENGTH) {
+      symbols[i] = s;
+      hashes[i] = hash;
+      ++size;
+    }
+    return s;
+  }
+
+  /**
+   * @return the number of symbols in the table
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Compare the first characters of a string with a character sequence
+   * @param s the string
+   * @param chars the character sequence
+   * @param len the number of characters to compare
+   * @return true if the characters are equal
+   */
+  static boolean equals(String s, CharSequence chars, int len) {
+    for (int i = 0; i < len; ++i) {
+      if (s.charAt(i) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
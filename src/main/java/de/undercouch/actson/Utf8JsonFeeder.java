@@ -0,0 +1,167 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package de.undercouch.actson;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>A {@link JsonFeeder} for UTF-8 encoded input that does not decode
+ * its input at all.</p>
+ * <p>{@link #nextInput()} returns raw bytes (i.e. values between 0 and 255)
+ * instead of decoded characters. A {@link JsonParser} created with this
+ * feeder runs its state machine directly on these bytes. Since the JSON
+ * grammar only consists of ASCII characters, UTF-8 sequences can only occur
+ * inside strings. The parser validates them there and assembles the
+ * characters of the string itself. A {@link java.nio.charset.CharsetDecoder}
+ * is never used.</p>
+ * @author Michel Kraemer
+ * @since 1.3.0
+ */
+public class Utf8JsonFeeder implements JsonFeeder {
+  /**
+   * The buffer caching input data. The {@link JsonParser} accesses it
+   * directly to parse all bytes between {@link #position} and
+   * {@link #limit} in one go.
+   */
+  final byte[] buf;
+
+  /**
+   * The index of the next byte to be parsed
+   */
+  int position = 0;
+
+  /**
+   * The index of the first free byte in {@link #buf}
+   */
+  int limit = 0;
+
+  private boolean done = false;
+
+  /**
+   * Constructs a feeder
+   */
+  public Utf8JsonFeeder() {
+    this(1024);
+  }
+
+  /**
+   * Constructs a feeder
+   * @param capacity the capacity of the internal byte buffer caching input data
+   */
+  public Utf8JsonFeeder(int capacity) {
+    buf = new byte[capacity];
+  }
+
+  @Override
+  public void feed(byte b) {
+    if (isFull()) {
+      throw new IllegalStateException("JSON parser is full");
+    }
+    makeRoom(1);
+    buf[limit] = b;
+    ++limit;
+  }
+
+  @Override
+  public int feed(byte[] buf) {
+    return feed(buf, 0, buf.length);
+  }
+
+  @Override
+  public int feed(byte[] buf, int offset, int len) {
+    makeRoom(len);
+    int n = Math.min(len, this.buf.length - limit);
+    System.arraycopy(buf, offset, this.buf, limit, n);
+    limit += n;
+    return n;
+  }
+
+  @Override
+  public int feed(ByteBuffer buf) {
+    makeRoom(buf.remaining());
+    int n = Math.min(buf.remaining(), this.buf.length - limit);
+    buf.get(this.buf, limit, n);
+    limit += n;
+    return n;
+  }
+
+  /**
+   * Make sure there is free space at the end of {@link #buf} by moving
+   * the bytes that have not been consumed yet to the front of the buffer.
+   * This method only copies bytes if there is not enough space left at
+   * the end of the buffer.
+   * @param len the number of bytes that should fit into the buffer
+   */
+  private void makeRoom(int len) {
+    if (position == limit) {
+      position = 0;
+      limit = 0;
+    } else if (buf.length - limit < len && position > 0) {
+      System.arraycopy(buf, position, buf, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+  }
+
+  @Override
+  public void done() {
+    done = true;
+  }
+
+  @Override
+  public void reset() {
+    position = 0;
+    limit = 0;
+    done = false;
+  }
+
+  @Override
+  public boolean isFull() {
+    return limit - position == buf.length;
+  }
+
+  @Override
+  public boolean hasInput() {
+    return position < limit;
+  }
+
+  @Override
+  public boolean isDone() {
+    return done && !hasInput();
+  }
+
+  /**
+   * Return the next byte to be parsed. The byte is not decoded. Its value
+   * is returned as a character between 0 and 255.
+   * @return the next byte to be parsed
+   * @throws IllegalStateException if there is no input to parse
+   */
+  @Override
+  public char nextInput() {
+    if (!hasInput()) {
+      throw new IllegalStateException("Not enough input data");
+    }
+    return (char)(buf[position++] & 0xFF);
+  }
+}
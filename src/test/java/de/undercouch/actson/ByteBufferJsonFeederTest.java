@@ -0,0 +1,179 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ByteBufferJsonFeeder}
+ * @author Michel Kraemer
+ */
+public class ByteBufferJsonFeederTest {
+  private ByteBufferJsonFeeder feeder = new ByteBufferJsonFeeder(
+      StandardCharsets.UTF_8, 4);
+
+  /**
+   * Test if the feeder is empty at the beginning
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void emptyAtBeginning() throws CharacterCodingException {
+    assertFalse(feeder.hasInput());
+    assertFalse(feeder.isFull());
+    assertFalse(feeder.isDone());
+  }
+
+  /**
+   * Test if the feeder is full until a buffer has been consumed completely
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void fullUntilConsumed() throws CharacterCodingException {
+    ByteBuffer buf = ByteBuffer.wrap("abcdef".getBytes(StandardCharsets.UTF_8));
+    assertEquals(6, feeder.feed(buf));
+    assertEquals(6, buf.position());
+    assertTrue(feeder.isFull());
+    assertEquals(0, feeder.feed(ByteBuffer.allocate(1)));
+    for (int i = 0; i < 6; ++i) {
+      assertEquals('a' + i, feeder.nextInput());
+    }
+    assertFalse(feeder.isFull());
+    assertFalse(feeder.hasInput());
+  }
+
+  /**
+   * Assert that a string fed in buffers of the given size (direct or heap)
+   * is decoded correctly
+   * @param expected the string
+   * @param chunkSize the number of bytes per buffer
+   * @param direct true if direct buffers should be used
+   * @throws CharacterCodingException if something goes wrong
+   */
+  private void assertString(String expected, int chunkSize, boolean direct)
+      throws CharacterCodingException {
+    byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+    StringBuilder actual = new StringBuilder();
+    int i = 0;
+    while (i < bytes.length) {
+      int n = Math.min(chunkSize, bytes.length - i);
+      ByteBuffer buf = direct ? ByteBuffer.allocateDirect(n) :
+          ByteBuffer.allocate(n);
+      buf.put(bytes, i, n);
+      buf.flip();
+      assertEquals(n, feeder.feed(buf));
+      i += n;
+      while (feeder.hasInput()) {
+        actual.append(feeder.nextInput());
+      }
+    }
+    feeder.done();
+    assertTrue(feeder.isDone());
+    assertEquals(expected, actual.toString());
+  }
+
+  /**
+   * Test if characters split between buffers are decoded correctly
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void splitCharacters() throws CharacterCodingException {
+    String str = "a\u0153b\u20acc\ud83d\ude00d\u0153\u0153\u20ac";
+    for (int i = 1; i <= 5; ++i) {
+      feeder = new ByteBufferJsonFeeder(StandardCharsets.UTF_8, 4);
+      assertString(str, i, false);
+      feeder = new ByteBufferJsonFeeder(StandardCharsets.UTF_8, 4);
+      assertString(str, i, true);
+    }
+  }
+
+  /**
+   * Test if the feeder accepts single bytes
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void feedBytes() throws CharacterCodingException {
+    feeder.feed((byte)197);
+    assertFalse(feeder.hasInput());
+    feeder.feed((byte)147);
+    assertTrue(feeder.hasInput());
+    assertEquals('\u0153', feeder.nextInput());
+  }
+
+  /**
+   * Test if an incomplete character at the end of the input is detected
+   * @throws CharacterCodingException if the test is successful
+   */
+  @Test(expected = MalformedInputException.class)
+  public void incompleteAtEnd() throws CharacterCodingException {
+    feeder.feed(new byte[] { 'a', (byte)197 });
+    feeder.done();
+    while (feeder.hasInput()) {
+      feeder.nextInput();
+    }
+  }
+
+  /**
+   * Test if the feeder can be used to parse JSON from direct buffers
+   */
+  @Test
+  public void parse() {
+    byte[] json = "{\"name\":\"Bj\u0153rn\",\"n\":[1,2.5]}"
+        .getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buf = ByteBuffer.allocateDirect(json.length);
+    buf.put(json);
+    buf.flip();
+
+    JsonParser parser = new JsonParser(feeder);
+    int[] expected = { JsonEvent.START_OBJECT, JsonEvent.FIELD_NAME,
+        JsonEvent.VALUE_STRING, JsonEvent.FIELD_NAME, JsonEvent.START_ARRAY,
+        JsonEvent.VALUE_INT, JsonEvent.VALUE_DOUBLE, JsonEvent.END_ARRAY,
+        JsonEvent.END_OBJECT, JsonEvent.EOF };
+    int i = 0;
+    int event;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        ByteBuffer chunk = buf.slice();
+        chunk.limit(Math.min(3, chunk.remaining()));
+        buf.position(buf.position() + parser.getFeeder().feed(chunk));
+        if (!buf.hasRemaining()) {
+          parser.getFeeder().done();
+        }
+      }
+      assertEquals(expected[i++], event);
+      if (event == JsonEvent.VALUE_STRING) {
+        assertEquals("Bj\u0153rn", parser.getCurrentString());
+      }
+    } while (event != JsonEvent.EOF);
+  }
+}
@@ -28,6 +28,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.MalformedInputException;
@@ -130,6 +131,36 @@ public class DefaultJsonFeederTest {
     assertFalse(feeder.hasInput());
   }
 
+  /**
+   * Test if the feeder accepts heap and direct byte buffers
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void feedByteBuffer() throws CharacterCodingException {
+    byte[] bytes = "abcdefghijklmnopqrst".getBytes(StandardCharsets.UTF_8);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes);
+    direct.flip();
+
+    assertEquals(16, feeder.feed(direct));
+    assertEquals(16, direct.position());
+    assertTrue(feeder.isFull());
+    assertEquals(0, feeder.feed(direct));
+    for (int i = 0; i < 16; ++i) {
+      assertEquals('a' + i, feeder.nextInput());
+    }
+
+    assertEquals(4, feeder.feed(direct));
+    assertEquals(2, feeder.feed(ByteBuffer.wrap(bytes, 5, 2)));
+    assertEquals('q', feeder.nextInput());
+    assertEquals('r', feeder.nextInput());
+    assertEquals('s', feeder.nextInput());
+    assertEquals('t', feeder.nextInput());
+    assertEquals('f', feeder.nextInput());
+    assertEquals('g', feeder.nextInput());
+    assertFalse(feeder.hasInput());
+  }
+
   /**
    * Test if the {@link DefaultJsonFeeder#isDone()} method works correctly
    * @throws CharacterCodingException if something goes wrong
@@ -0,0 +1,228 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DoubleConversion} against {@link Double#parseDouble(String)}
+ * @author Michel Kraemer
+ */
+public class DoubleConversionTest {
+  /**
+   * Convert a long to an unsigned {@link BigInteger}
+   * @param l the long
+   * @return the unsigned value
+   */
+  private static BigInteger toUnsigned(long l) {
+    BigInteger r = BigInteger.valueOf(l & Long.MAX_VALUE);
+    if (l < 0) {
+      r = r.setBit(63);
+    }
+    return r;
+  }
+
+  /**
+   * Convert a mantissa and exponent with {@link DoubleConversion} and
+   * compare the result with {@link Double#parseDouble(String)}. Skip the
+   * comparison if the algorithm could not decide.
+   * @param mantissa the unsigned mantissa
+   * @param exp10 the decimal exponent
+   * @return true if the algorithm returned a result
+   */
+  private static boolean assertConversion(long mantissa, int exp10) {
+    double d = DoubleConversion.toDouble(mantissa, exp10, false);
+    if (Double.isNaN(d)) {
+      return false;
+    }
+    String s = toUnsigned(mantissa) + "e" + exp10;
+    assertEquals(s, Double.doubleToLongBits(Double.parseDouble(s)),
+        Double.doubleToLongBits(d));
+    return true;
+  }
+
+  /**
+   * Parse a number with the {@link JsonParser} and compare the result of
+   * {@link JsonParser#getCurrentDouble()} with
+   * {@link Double#parseDouble(String)}
+   * @param json the number to parse
+   */
+  private static void assertParsedDouble(String json) {
+    JsonParser parser = new JsonParser(StandardCharsets.UTF_8);
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    parser.getFeeder().feed(bytes);
+    parser.getFeeder().done();
+    assertEquals(JsonEvent.VALUE_DOUBLE, parser.nextEvent());
+    assertEquals(json, Double.doubleToLongBits(Double.parseDouble(json)),
+        Double.doubleToLongBits(parser.getCurrentDouble()));
+  }
+
+  /**
+   * Test some well-known values
+   */
+  @Test
+  public void knownValues() {
+    assertEquals(0.0, DoubleConversion.toDouble(0, 5, false), 0.0);
+    assertEquals(Double.doubleToLongBits(-0.0),
+        Double.doubleToLongBits(DoubleConversion.toDouble(0, 5, true)));
+    assertEquals(1.0, DoubleConversion.toDouble(1, 0, false), 0.0);
+    assertEquals(-0.1, DoubleConversion.toDouble(1, -1, true), 0.0);
+    assertEquals(Double.MAX_VALUE,
+        DoubleConversion.toDouble(17976931348623157L, 292, false), 0.0);
+    assertEquals(Double.MIN_NORMAL,
+        DoubleConversion.toDouble(22250738585072014L, -324, false), 0.0);
+    assertEquals(Math.PI,
+        DoubleConversion.toDouble(3141592653589793L, -15, false), 0.0);
+    assertConversion(-1L, 0);
+    assertConversion(-1L, -30);
+    assertConversion(-1L, 290);
+  }
+
+  /**
+   * Test that the algorithm gives up if the result is not a normal
+   * double
+   */
+  @Test
+  public void outOfRange() {
+    assertEquals(Double.NaN, DoubleConversion.toDouble(1, 309, false), 0.0);
+    assertEquals(Double.NaN, DoubleConversion.toDouble(1, -330, false), 0.0);
+    assertEquals(Double.NaN, DoubleConversion.toDouble(1, 400, false), 0.0);
+    assertEquals(Double.NaN, DoubleConversion.toDouble(1, -400, false), 0.0);
+  }
+
+  /**
+   * Test that the algorithm gives up if the value lies exactly halfway
+   * between two doubles
+   */
+  @Test
+  public void halfway() {
+    // 10^23 = 2^23 * 5^23 and 5^23 needs 54 bits
+    assertEquals(Double.NaN, DoubleConversion.toDouble(1, 23, false), 0.0);
+    // 2^53 + 1
+    assertEquals(Double.NaN, DoubleConversion.toDouble(
+        9007199254740993L, 0, false), 0.0);
+  }
+
+  /**
+   * Compare random mantissas and exponents with
+   * {@link Double#parseDouble(String)}
+   */
+  @Test
+  public void randomMantissas() {
+    Random rnd = new Random(1234);
+    int converted = 0;
+    for (int i = 0; i < 200000; ++i) {
+      long m;
+      switch (i % 3) {
+      case 0:
+        m = rnd.nextLong();
+        break;
+      case 1:
+        m = rnd.nextLong() >>> rnd.nextInt(64);
+        break;
+      default:
+        m = (rnd.nextLong() >>> 11) | 1;
+        break;
+      }
+      // results are always normal doubles in this range
+      int exp10 = rnd.nextInt(596) - 307;
+      if (assertConversion(m, exp10)) {
+        ++converted;
+      }
+    }
+    // the algorithm should almost never give up
+    assertEquals(200000, converted, 2000);
+  }
+
+  /**
+   * Convert the shortest representation of random doubles back and make
+   * sure the result is the same double
+   */
+  @Test
+  public void roundTrip() {
+    Random rnd = new Random(5678);
+    for (int i = 0; i < 100000; ++i) {
+      double d = Double.longBitsToDouble(rnd.nextLong() & 0x7FFFFFFFFFFFFFFFL);
+      if (Double.isNaN(d) || Double.isInfinite(d) ||
+          d < Double.MIN_NORMAL) {
+        continue;
+      }
+      String s = Double.toString(d);
+      int e = s.indexOf('E');
+      int exp10 = e < 0 ? 0 : Integer.parseInt(s.substring(e + 1));
+      String digits = e < 0 ? s : s.substring(0, e);
+      int dot = digits.indexOf('.');
+      exp10 -= digits.length() - dot - 1;
+      long m = Long.parseLong(digits.substring(0, dot) +
+          digits.substring(dot + 1));
+      double r = DoubleConversion.toDouble(m, exp10, false);
+      if (!Double.isNaN(r)) {
+        assertEquals(s, Double.doubleToLongBits(d), Double.doubleToLongBits(r));
+      }
+    }
+  }
+
+  /**
+   * Parse random numbers (including ones with more than 19 significant
+   * digits) with the {@link JsonParser} and compare the results with
+   * {@link Double#parseDouble(String)}
+   */
+  @Test
+  public void parser() {
+    Random rnd = new Random(9012);
+    for (int i = 0; i < 20000; ++i) {
+      StringBuilder sb = new StringBuilder();
+      if (rnd.nextBoolean()) {
+        sb.append('-');
+      }
+      int intDigits = rnd.nextInt(25) + 1;
+      sb.append(rnd.nextInt(9) + 1);
+      for (int j = 1; j < intDigits; ++j) {
+        sb.append(rnd.nextInt(10));
+      }
+      int fracDigits = rnd.nextInt(25);
+      if (fracDigits > 0) {
+        sb.append('.');
+        for (int j = 0; j < fracDigits; ++j) {
+          sb.append(rnd.nextInt(10));
+        }
+      }
+      sb.append('e').append(rnd.nextInt(640) - 330);
+      assertParsedDouble(sb.toString());
+    }
+    assertParsedDouble("0.1");
+    assertParsedDouble("2.2250738585072011e-308");
+    assertParsedDouble("4.9e-324");
+    assertParsedDouble("1.7976931348623159e308");
+    assertParsedDouble("9007199254740993.0");
+    assertParsedDouble("9007199254740993.00000000000000000001");
+  }
+}
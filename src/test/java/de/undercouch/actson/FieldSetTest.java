@@ -0,0 +1,88 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link FieldSet}
+ * @author Michel Kraemer
+ */
+public class FieldSetTest {
+  /**
+   * Test if field names can be looked up
+   */
+  @Test
+  public void indexOf() {
+    FieldSet fields = FieldSet.of("id", "ts", "value", "Aa", "BB", "");
+    assertEquals(6, fields.size());
+    assertEquals(0, fields.indexOf("id"));
+    assertEquals(1, fields.indexOf("ts"));
+    assertEquals(2, fields.indexOf(new StringBuilder("value")));
+    assertEquals(3, fields.indexOf("Aa"));
+    assertEquals(4, fields.indexOf("BB"));
+    assertEquals(5, fields.indexOf(""));
+    assertEquals(-1, fields.indexOf("i"));
+    assertEquals(-1, fields.indexOf("idx"));
+    assertEquals(-1, fields.indexOf("C#"));
+    assertEquals("value", fields.getName(2));
+  }
+
+  /**
+   * Test an empty set
+   */
+  @Test
+  public void empty() {
+    FieldSet fields = FieldSet.of();
+    assertEquals(0, fields.size());
+    assertEquals(-1, fields.indexOf("id"));
+  }
+
+  /**
+   * Test a large set
+   */
+  @Test
+  public void large() {
+    String[] names = new String[1000];
+    for (int i = 0; i < names.length; ++i) {
+      names[i] = "field" + i;
+    }
+    FieldSet fields = FieldSet.of(names);
+    for (int i = 0; i < names.length; ++i) {
+      assertEquals(i, fields.indexOf("field" + i));
+    }
+    assertEquals(-1, fields.indexOf("field1000"));
+  }
+
+  /**
+   * Test if duplicate field names are rejected
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void duplicate() {
+    FieldSet.of("id", "name", "id");
+  }
+}
@@ -0,0 +1,284 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link JsonEventBatch} and {@link JsonParser#nextEvents(JsonEventBatch)}
+ * @author Michel Kraemer
+ */
+public class JsonEventBatchTest {
+  private static final String JSON = "{\"name\":\"Elvis\",\"age\":42," +
+      "\"big\":-9223372036854775808,\"pi\":3.14,\"tags\":[\"a\\\"b\",true," +
+      "null,{}],\"\":\"\"}";
+
+  /**
+   * Parse the test document event by event
+   * @return the events and their values
+   */
+  private static List<String> parseOneByOne() {
+    byte[] json = JSON.getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed(json);
+    parser.getFeeder().done();
+    List<String> result = new ArrayList<>();
+    int event;
+    do {
+      event = parser.nextEvent();
+      result.add(event + ":" + (event == JsonEvent.FIELD_NAME ||
+          event == JsonEvent.VALUE_STRING || event == JsonEvent.VALUE_INT ||
+          event == JsonEvent.VALUE_DOUBLE ? parser.getCurrentString() : ""));
+    } while (event != JsonEvent.EOF);
+    return result;
+  }
+
+  /**
+   * Test if a batch contains the same events and values as returned by
+   * {@link JsonParser#nextEvent()}
+   */
+  @Test
+  public void sameEvents() {
+    List<String> expected = parseOneByOne();
+    byte[] json = JSON.getBytes(StandardCharsets.UTF_8);
+
+    for (int capacity = 1; capacity < 30; ++capacity) {
+      for (int feedSize = 1; feedSize < json.length; feedSize += 7) {
+        JsonParser parser = new JsonParser();
+        JsonEventBatch batch = new JsonEventBatch(capacity, 1);
+        List<String> actual = new ArrayList<>();
+        int i = 0;
+        boolean eof = false;
+        while (!eof) {
+          if (parser.nextEvents(batch) == 0) {
+            i += parser.getFeeder().feed(json, i,
+                Math.min(feedSize, json.length - i));
+            if (i == json.length) {
+              parser.getFeeder().done();
+            }
+            continue;
+          }
+          for (int j = 0; j < batch.size(); ++j) {
+            int event = batch.getEvent(j);
+            actual.add(event + ":" + batch.getString(j));
+            eof = (event == JsonEvent.EOF);
+          }
+        }
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  /**
+   * Create a parser for {@link #sameEventsAllModes()}
+   * @param type the type of the parser's feeder
+   * @param framing the framing
+   * @param threshold the string part threshold
+   * @return the parser
+   */
+  private static JsonParser newParser(int type, int framing, int threshold) {
+    JsonParser parser;
+    switch (type) {
+    case 0:
+      parser = new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8,
+          8));
+      break;
+    case 1:
+      parser = new JsonParser(new Utf8JsonFeeder(8));
+      break;
+    default:
+      parser = new JsonParser(new RingBufferJsonFeeder(
+          StandardCharsets.UTF_8, 8));
+      break;
+    }
+    parser.setFraming(framing);
+    parser.setStringPartThreshold(threshold);
+    return parser;
+  }
+
+  /**
+   * Convert an event and its value to a string
+   * @param event the event
+   * @param value the event's value
+   * @param d the value of a number as a double
+   * @return the string
+   */
+  private static String toString(int event, String value, double d) {
+    if (event == JsonEvent.VALUE_INT || event == JsonEvent.VALUE_DOUBLE) {
+      value += "=" + Double.doubleToLongBits(d);
+    }
+    return event + ":" + value;
+  }
+
+  /**
+   * Test if the batches contain the same events and values as returned by
+   * {@link JsonParser#nextEvent()} for all feeders, with multiple
+   * top-level values, and with string parts
+   */
+  @Test
+  public void sameEventsAllModes() {
+    byte[] json = ("{\"a\":1}\n[2.5e-3,\"xy\u00e4z\\n\",-0,1e400]\n" +
+        "\"long string\"\n3\n{\"b\":{\"c\":[true,false,null," +
+        "123456789012345678901234567890.5]}}\n").getBytes(
+            StandardCharsets.UTF_8);
+    int[] framings = { JsonFraming.LINE_DELIMITED, JsonFraming.CONCATENATED };
+    for (int framing : framings) {
+      for (int type = 0; type < 3; ++type) {
+        for (int threshold = 0; threshold < 4; threshold += 3) {
+          List<String> expected = new ArrayList<>();
+          JsonParser parser = newParser(type, framing, threshold);
+          int i = 0;
+          int event;
+          do {
+            event = parser.nextEvent();
+            if (event == JsonEvent.NEED_MORE_INPUT) {
+              i += parser.getFeeder().feed(json, i, json.length - i);
+              if (i == json.length) {
+                parser.getFeeder().done();
+              }
+              continue;
+            }
+            boolean number = (event == JsonEvent.VALUE_INT ||
+                event == JsonEvent.VALUE_DOUBLE);
+            boolean hasValue = number || event == JsonEvent.FIELD_NAME ||
+                event == JsonEvent.VALUE_STRING ||
+                event == JsonEvent.VALUE_STRING_PART;
+            expected.add(toString(event, hasValue ?
+                parser.getCurrentString() : "",
+                number ? parser.getCurrentDouble() : 0));
+          } while (event != JsonEvent.EOF);
+
+          for (int capacity = 1; capacity < 8; ++capacity) {
+            List<String> actual = new ArrayList<>();
+            List<String> actualEvents = new ArrayList<>();
+            parser = newParser(type, framing, threshold);
+            JsonParser parser2 = newParser(type, framing, threshold);
+            JsonEventBatch batch = new JsonEventBatch(capacity, 1);
+            int[] events = new int[capacity];
+            i = 0;
+            int i2 = 0;
+            boolean eof = false;
+            while (!eof) {
+              if (parser.nextEvents(batch) == 0) {
+                i += parser.getFeeder().feed(json, i, json.length - i);
+                if (i == json.length) {
+                  parser.getFeeder().done();
+                }
+              }
+              for (int j = 0; j < batch.size(); ++j) {
+                int e = batch.getEvent(j);
+                boolean number = (e == JsonEvent.VALUE_INT ||
+                    e == JsonEvent.VALUE_DOUBLE);
+                actual.add(toString(e, batch.getString(j),
+                    number ? batch.getDouble(j) : 0));
+                eof = (e == JsonEvent.EOF);
+              }
+            }
+            assertEquals(expected, actual);
+
+            eof = false;
+            while (!eof) {
+              int n = parser2.nextEvents(events, capacity);
+              if (n == 0) {
+                i2 += parser2.getFeeder().feed(json, i2, json.length - i2);
+                if (i2 == json.length) {
+                  parser2.getFeeder().done();
+                }
+              }
+              for (int j = 0; j < n; ++j) {
+                actualEvents.add(String.valueOf(events[j]));
+                eof = (events[j] == JsonEvent.EOF);
+              }
+            }
+            assertEquals(expected.size(), actualEvents.size());
+            for (int j = 0; j < expected.size(); ++j) {
+              assertEquals(expected.get(j).split(":")[0],
+                  actualEvents.get(j));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the getters for numbers
+  @Test
+  public void numbers() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed(JSON.getBytes(StandardCharsets.UTF_8));
+    parser.getFeeder().done();
+    JsonEventBatch batch = new JsonEventBatch(100);
+    int n = parser.nextEvents(batch);
+    assertEquals(21, n);
+    assertEquals(JsonEvent.EOF, batch.getEvents()[n - 1]);
+    assertEquals(42, batch.getInt(4));
+    assertEquals(42L, batch.getLong(4));
+    assertEquals(Long.MIN_VALUE, batch.getLong(6));
+    assertEquals(3.14, batch.getDouble(8), 0.0);
+    assertEquals("a\"b", batch.getString(11));
+    assertEquals(3, batch.getValueLength(11));
+    assertEquals(0, batch.getValueLength(12));
+  }
+
+  /**
+   * Test if getInt() fails for large numbers
+   */
+  @Test(expected = NumberFormatException.class)
+  public void intOverflow() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed(JSON.getBytes(StandardCharsets.UTF_8));
+    JsonEventBatch batch = new JsonEventBatch(100);
+    parser.nextEvents(batch);
+    batch.getInt(6);
+  }
+
+  /**
+   * Test if events can be written into an array
+   */
+  @Test
+  public void eventArray() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed("[1,2".getBytes(StandardCharsets.UTF_8));
+    int[] events = new int[10];
+    assertEquals(2, parser.nextEvents(events, 10));
+    assertEquals(JsonEvent.START_ARRAY, events[0]);
+    assertEquals(JsonEvent.VALUE_INT, events[1]);
+    assertEquals(0, parser.nextEvents(events, 10));
+    parser.getFeeder().feed("]".getBytes(StandardCharsets.UTF_8));
+    parser.getFeeder().done();
+    assertEquals(1, parser.nextEvents(events, 1));
+    assertEquals(JsonEvent.VALUE_INT, events[0]);
+    assertEquals(2, parser.nextEvents(events, 10));
+    assertEquals(JsonEvent.END_ARRAY, events[0]);
+    assertEquals(JsonEvent.EOF, events[1]);
+  }
+}
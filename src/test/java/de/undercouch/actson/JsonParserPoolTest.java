@@ -0,0 +1,189 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link JsonParserPool}
+ * @author Michel Kraemer
+ */
+public class JsonParserPoolTest {
+  /**
+   * Parse a JSON text and return the value of the first field
+   * @param parser the parser
+   * @param json the JSON text
+   * @return the value
+   */
+  private static String parseField(JsonParser parser, String json) {
+    byte[] buf = json.getBytes(StandardCharsets.UTF_8);
+    int i = 0;
+    String result = null;
+    int event;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += parser.getFeeder().feed(buf, i, buf.length - i);
+        if (i == buf.length) {
+          parser.getFeeder().done();
+        }
+      }
+      if (event == JsonEvent.VALUE_STRING && result == null) {
+        result = parser.getCurrentString();
+      }
+    } while (event != JsonEvent.EOF && event != JsonEvent.ERROR);
+    return result;
+  }
+
+  /**
+   * Test if the current thread gets its cached parser back
+   */
+  @Test
+  public void cached() {
+    JsonParserPool pool = new JsonParserPool(2);
+    JsonParser parser = pool.borrow();
+    assertEquals("a", parseField(parser, "{\"x\":\"a\"}"));
+    pool.release(parser);
+    assertEquals(0, pool.size());
+
+    JsonParser parser2 = pool.borrow();
+    assertSame(parser, parser2);
+    assertEquals("b", parseField(parser2, "{\"x\":\"b\"}"));
+    assertNotSame(parser, pool.borrow());
+  }
+
+  /**
+   * Test if the shared queue is bounded
+   */
+  @Test
+  public void bounded() {
+    JsonParserPool pool = new JsonParserPool(2);
+    List<JsonParser> parsers = new ArrayList<>();
+    for (int i = 0; i < 5; ++i) {
+      parsers.add(pool.borrow());
+    }
+    for (JsonParser parser : parsers) {
+      pool.release(parser);
+    }
+    assertEquals(2, pool.size());
+    assertSame(parsers.get(0), pool.borrow());
+    assertSame(parsers.get(1), pool.borrow());
+    assertSame(parsers.get(2), pool.borrow());
+    assertEquals(0, pool.size());
+  }
+
+  /**
+   * Test if a custom factory method is used
+   */
+  @Test
+  public void createParser() {
+    final AtomicInteger created = new AtomicInteger();
+    JsonParserPool pool = new JsonParserPool(1) {
+      @Override
+      protected JsonParser createParser() {
+        created.incrementAndGet();
+        return new JsonParser(new Utf8JsonFeeder());
+      }
+    };
+    JsonParser parser = pool.borrow();
+    assertEquals("\u00e4", parseField(parser, "[\"\u00e4\"]"));
+    pool.release(parser);
+    parser = pool.borrow();
+    assertEquals("c", parseField(parser, "[\"c\"]"));
+    assertEquals(1, created.get());
+  }
+
+  /**
+   * Test if settings changed by a borrower are reverted
+   */
+  @Test
+  public void settings() {
+    JsonParserPool pool = new JsonParserPool(1) {
+      @Override
+      protected JsonParser createParser() {
+        JsonParser parser = super.createParser();
+        parser.setFraming(JsonFraming.LINE_DELIMITED);
+        return parser;
+      }
+    };
+    JsonParser parser = pool.borrow();
+    parser.setFraming(JsonFraming.TEXT_SEQUENCE);
+    parser.setMaxDepth(1);
+    parser.setStringPartThreshold(2);
+    parser.setCanonicalizeFieldNames(true);
+    parser.decodeBase64(ByteBuffer.allocate(4));
+    pool.release(parser);
+
+    JsonParser parser2 = pool.borrow();
+    assertSame(parser, parser2);
+    assertEquals(JsonFraming.LINE_DELIMITED, parser2.getFraming());
+    assertEquals(new JsonParser().getMaxDepth(), parser2.getMaxDepth());
+    assertEquals(0, parser2.getStringPartThreshold());
+    assertFalse(parser2.isCanonicalizeFieldNames());
+    assertEquals("abc", parseField(parser2, "[\"abc\"]\n[\"d\"]"));
+  }
+
+  /**
+   * Test if the pool can be used by multiple threads
+   * @throws Exception if a thread failed
+   */
+  @Test
+  public void threads() throws Exception {
+    final JsonParserPool pool = new JsonParserPool(4);
+    final AtomicInteger errors = new AtomicInteger();
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; ++t) {
+      final String value = "v" + t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 1000; ++i) {
+            JsonParser parser = pool.borrow();
+            if (!value.equals(parseField(parser,
+                "{\"x\":\"" + value + "\"}"))) {
+              errors.incrementAndGet();
+            }
+            pool.release(parser);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(0, errors.get());
+  }
+}
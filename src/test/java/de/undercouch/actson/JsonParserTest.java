@@ -25,16 +25,29 @@ package de.undercouch.actson;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
+import com.fasterxml.jackson.core.Base64Variants;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -401,4 +414,1534 @@ public class JsonParserTest {
     JsonParser parser = new JsonParser();
     assertEquals("0", parse(json, parser));
   }
+
+  /**
+   * Test if valid files can be parsed correctly in UTF-8 mode
+   * @throws IOException if one of the test files could not be read
+   */
+  @Test
+  public void utf8ModePass() throws IOException {
+    for (int i = 1; i <= 3; ++i) {
+      URL u = getClass().getResource("pass" + i + ".txt");
+      String json = IOUtils.toString(u, "UTF-8");
+      JsonParser parser = new JsonParser(new Utf8JsonFeeder());
+      if (json.startsWith("{")) {
+        assertJsonObjectEquals(json, parse(json, parser));
+      } else {
+        assertJsonArrayEquals(json, parse(json, parser));
+      }
+    }
+  }
+
+  /**
+   * Test if invalid files cannot be parsed in UTF-8 mode
+   * @throws IOException if one of the test files could not be read
+   */
+  @Test
+  public void utf8ModeFail() throws IOException {
+    for (int i = 2; i <= 34; ++i) {
+      URL u = getClass().getResource("fail" + i + ".txt");
+      byte[] json = IOUtils.toByteArray(u);
+      JsonParser parser = new JsonParser(new Utf8JsonFeeder(16));
+      parser.setMaxDepth(16);
+      parseFail(json, parser);
+    }
+  }
+
+  /**
+   * Test if multi-byte UTF-8 sequences are decoded correctly in UTF-8 mode
+   */
+  @Test
+  public void utf8ModeMultiByte() {
+    String str = "a\u00e4\u20ac\ud83d\ude00z";
+    String expected = "a\u00e4\u20ac\ud83d\ude00z";
+    byte[] json = ("[\"" + str + "\"]").getBytes(StandardCharsets.UTF_8);
+
+    // feed byte by byte so sequences are split across calls
+    JsonParser parser = new JsonParser(new Utf8JsonFeeder(1));
+    int i = 0;
+    int event;
+    String actual = null;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        if (i < json.length) {
+          parser.getFeeder().feed(json[i++]);
+        } else {
+          parser.getFeeder().done();
+        }
+      }
+      assertFalse(event == JsonEvent.ERROR);
+      if (event == JsonEvent.VALUE_STRING) {
+        actual = parser.getCurrentString();
+      }
+    } while (event != JsonEvent.EOF);
+
+    assertEquals(expected, actual);
+    assertEquals(4 + expected.length(), parser.getParsedCharacterCount());
+    assertEquals(json.length, parser.getParsedByteCount());
+  }
+
+  /**
+   * Test if invalid UTF-8 sequences are rejected in UTF-8 mode
+   */
+  @Test
+  public void utf8ModeMalformed() {
+    int[][] sequences = {
+      { 0x80 }, // lone continuation byte
+      { 0xC0, 0x80 }, // overlong
+      { 0xE0, 0x80, 0x80 }, // overlong
+      { 0xED, 0xA0, 0x80 }, // surrogate
+      { 0xF4, 0x90, 0x80, 0x80 }, // greater than U+10FFFF
+      { 0xF5, 0x80, 0x80, 0x80 }, // invalid lead byte
+      { 0xE2, 0x82 }, // truncated
+      { 0xC3, 0x41 } // missing continuation byte
+    };
+    for (int[] seq : sequences) {
+      byte[] json = new byte[seq.length + 4];
+      json[0] = '[';
+      json[1] = '"';
+      for (int i = 0; i < seq.length; ++i) {
+        json[i + 2] = (byte)seq[i];
+      }
+      json[json.length - 2] = '"';
+      json[json.length - 1] = ']';
+      parseFail(json, new JsonParser(new Utf8JsonFeeder()));
+    }
+  }
+
+  /**
+   * Test that non-ASCII bytes are rejected outside of strings in UTF-8 mode
+   */
+  @Test
+  public void utf8ModeOutsideString() {
+    byte[] json = "[\u00e4]".getBytes(StandardCharsets.UTF_8);
+    parseFail(json, new JsonParser(new Utf8JsonFeeder()));
+  }
+
+  /**
+   * A feeder that only implements the {@link JsonFeeder} interface, so
+   * the parser cannot access its buffer directly
+   */
+  private static class CharByCharFeeder implements JsonFeeder {
+    private final JsonFeeder delegate = new DefaultJsonFeeder(
+        StandardCharsets.UTF_8, 16);
+
+    @Override
+    public void feed(byte b) {
+      delegate.feed(b);
+    }
+
+    @Override
+    public int feed(byte[] buf) {
+      return delegate.feed(buf);
+    }
+
+    @Override
+    public int feed(byte[] buf, int offset, int len) {
+      return delegate.feed(buf, offset, len);
+    }
+
+    @Override
+    public int feed(ByteBuffer buf) {
+      return delegate.feed(buf);
+    }
+
+    @Override
+    public boolean isFull() {
+      return delegate.isFull();
+    }
+
+    @Override
+    public void done() {
+      delegate.done();
+    }
+
+    @Override
+    public void reset() {
+      delegate.reset();
+    }
+
+    @Override
+    public boolean hasInput() throws CharacterCodingException {
+      return delegate.hasInput();
+    }
+
+    @Override
+    public boolean isDone() throws CharacterCodingException {
+      return delegate.isDone();
+    }
+
+    @Override
+    public char nextInput() throws CharacterCodingException {
+      return delegate.nextInput();
+    }
+  }
+
+  /**
+   * Test if valid files can be parsed with a feeder that does not give
+   * the parser direct access to its buffer
+   * @throws IOException if one of the test files could not be read
+   */
+  @Test
+  public void charByCharFeeder() throws IOException {
+    for (int i = 1; i <= 3; ++i) {
+      URL u = getClass().getResource("pass" + i + ".txt");
+      String json = IOUtils.toString(u, "UTF-8");
+      JsonParser parser = new JsonParser(new CharByCharFeeder());
+      if (json.startsWith("{")) {
+        assertJsonObjectEquals(json, parse(json, parser));
+      } else {
+        assertJsonArrayEquals(json, parse(json, parser));
+      }
+    }
+  }
+
+  /**
+   * Test if strings spanning multiple windows of the feeder are parsed
+   * correctly
+   */
+  @Test
+  public void stringAcrossWindows() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; ++i) {
+      sb.append((char)('a' + (i % 26)));
+      if (i % 7 == 0) {
+        sb.append("\u0153");
+      }
+    }
+    String json = "[\"" + sb + "\"]";
+    JsonParser parser = new JsonParser(new DefaultJsonFeeder(
+        StandardCharsets.UTF_8, 16));
+    assertJsonArrayEquals(json, parse(json, parser));
+    parser = new JsonParser(new Utf8JsonFeeder(16));
+    assertJsonArrayEquals(json, parse(json, parser));
+  }
+
+  /**
+   * Parse a JSON text consisting of a single number
+   * @param number the number to parse
+   * @return a parser whose current value is the number
+   */
+  private static JsonParser parseNumber(String number) {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed(number.getBytes(StandardCharsets.UTF_8));
+    parser.getFeeder().done();
+    int event = parser.nextEvent();
+    assertTrue(event == JsonEvent.VALUE_INT ||
+        event == JsonEvent.VALUE_DOUBLE);
+    return parser;
+  }
+
+  /**
+   * Test if integers are accumulated correctly while parsing
+   */
+  @Test
+  public void accumulatedIntegers() {
+    String[] numbers = { "0", "-0", "1", "-1", "42", "2147483647",
+        "2147483648", "-2147483648", "-2147483649", "9223372036854775807",
+        "-9223372036854775808", "9223372036854775808",
+        "-9223372036854775809", "9999999999999999999",
+        "18446744073709551616", "123456789012345678901234567890",
+        "1.0", "1e2" };
+    for (String n : numbers) {
+      JsonParser parser = parseNumber(n);
+
+      String expectedLong;
+      try {
+        expectedLong = String.valueOf(Long.parseLong(n));
+      } catch (NumberFormatException e) {
+        expectedLong = "NFE";
+      }
+      String actualLong;
+      try {
+        actualLong = String.valueOf(parser.getCurrentLong());
+      } catch (NumberFormatException e) {
+        actualLong = "NFE";
+      }
+      assertEquals(n, expectedLong, actualLong);
+
+      String expectedInt;
+      try {
+        expectedInt = String.valueOf(Integer.parseInt(n));
+      } catch (NumberFormatException e) {
+        expectedInt = "NFE";
+      }
+      String actualInt;
+      try {
+        actualInt = String.valueOf(parser.getCurrentInt());
+      } catch (NumberFormatException e) {
+        actualInt = "NFE";
+      }
+      assertEquals(n, expectedInt, actualInt);
+    }
+  }
+
+  /**
+   * Test if doubles are calculated correctly from the accumulated digits
+   */
+  @Test
+  public void accumulatedDoubles() {
+    String[] numbers = { "0", "-0", "0.0", "-0.0", "1.5", "-1.5", "0.1",
+        "3.141592653589793", "1e22", "1e23", "1E-22", "1e-23",
+        "9007199254740993", "9007199254740992", "0.000001234",
+        "123456789012345678901234567890", "1.7976931348623157e308",
+        "4.9e-324", "2.2250738585072014E-308", "1e400", "-1e400", "1e-400",
+        "0e99999999999", "12345678901234567890.123", "0.30000000000000004",
+        "100000000000000000000000", "1.00000000000000000000000001" };
+    for (String n : numbers) {
+      JsonParser parser = parseNumber(n);
+      assertEquals(n, Double.doubleToLongBits(Double.parseDouble(n)),
+          Double.doubleToLongBits(parser.getCurrentDouble()));
+    }
+  }
+
+  /**
+   * Test if big integers and big decimals are created correctly and if
+   * the number type is determined correctly
+   */
+  @Test
+  public void bigNumbers() {
+    String[] numbers = { "0", "-0", "1", "-1", "2147483647", "2147483648",
+        "-2147483648", "-2147483649", "9223372036854775807",
+        "-9223372036854775808", "9223372036854775808",
+        "-9223372036854775809", "9999999999999999999",
+        "10000000000000000000", "123456789012345678901234567890",
+        "-123456789012345678901234567890" };
+    for (String n : numbers) {
+      JsonParser parser = parseNumber(n);
+      BigInteger expected = new BigInteger(n);
+      assertEquals(n, expected, parser.getCurrentBigInteger());
+      assertEquals(n, new BigDecimal(n), parser.getCurrentBigDecimal());
+
+      int expectedType;
+      if (expected.bitLength() < 32) {
+        expectedType = JsonNumberType.INT;
+      } else if (expected.bitLength() < 64) {
+        expectedType = JsonNumberType.LONG;
+      } else {
+        expectedType = JsonNumberType.BIG_INTEGER;
+      }
+      assertEquals(n, expectedType, parser.getCurrentNumberType());
+    }
+
+    String[] decimals = { "0.0", "-0.0", "0.00", "1.50", "-1.5", "1e5",
+        "1E+5", "1.5e-5", "0.000001234", "100.001e2",
+        "3.14159265358979323846264338327950288",
+        "1.0000000000000000000000", "1e99999", "1e100001",
+        "123456789012345678901234567890e-10" };
+    for (String n : decimals) {
+      JsonParser parser = parseNumber(n);
+      assertEquals(n, new BigDecimal(n), parser.getCurrentBigDecimal());
+      assertEquals(n, JsonNumberType.DOUBLE, parser.getCurrentNumberType());
+    }
+  }
+
+  /**
+   * Test if the number type is {@link JsonNumberType#NONE} for other values
+   */
+  @Test
+  public void numberTypeNone() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed("[\"1\"]".getBytes(StandardCharsets.UTF_8));
+    assertEquals(JsonEvent.START_ARRAY, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_STRING, parser.nextEvent());
+    assertEquals(JsonNumberType.NONE, parser.getCurrentNumberType());
+  }
+
+  /**
+   * Parse the given JSON text and return the first string value
+   * @param parser the parser to use
+   * @param json the JSON text
+   * @return the string value
+   */
+  private static String parseString(JsonParser parser, byte[] json) {
+    int i = 0;
+    int event;
+    String result = null;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += parser.getFeeder().feed(json, i, json.length - i);
+        if (i == json.length) {
+          parser.getFeeder().done();
+        }
+      }
+      assertFalse(event == JsonEvent.ERROR);
+      if (event == JsonEvent.VALUE_STRING && result == null) {
+        result = parser.getCurrentString();
+      }
+    } while (event != JsonEvent.EOF);
+    return result;
+  }
+
+  /**
+   * Test if escape sequences are decoded
+   */
+  @Test
+  public void escapeSequences() throws Exception {
+    byte[] json = ("[\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t" +
+        "\\u00e4\\u20AC\\ud83d\\ude00\\u0000z\"]")
+        .getBytes(StandardCharsets.UTF_8);
+    String expected = "a\"b\\c/d\b\f\n\r\t\u00e4\u20ac\ud83d\ude00\u0000z";
+
+    assertEquals(expected, parseString(new JsonParser(), json));
+    assertEquals(expected, parseString(
+        new JsonParser(new Utf8JsonFeeder()), json));
+    assertEquals(expected, parseString(
+        new JsonParser(new CharByCharFeeder()), json));
+
+    // split escape sequences across windows
+    assertEquals(expected, parseString(new JsonParser(
+        new DefaultJsonFeeder(StandardCharsets.UTF_8, 3)), json));
+    assertEquals(expected, parseString(
+        new JsonParser(new Utf8JsonFeeder(2)), json));
+  }
+
+  /**
+   * Test if field names are unescaped too
+   */
+  @Test
+  public void escapedFieldName() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed("{\"a\\tb\":1}".getBytes(StandardCharsets.UTF_8));
+    assertEquals(JsonEvent.START_OBJECT, parser.nextEvent());
+    assertEquals(JsonEvent.FIELD_NAME, parser.nextEvent());
+    assertEquals("a\tb", parser.getCurrentString());
+  }
+
+  /**
+   * Test if the current value can be accessed without creating a string
+   */
+  @Test
+  public void currentCharSequence() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed("{\"name\":\"Elvis\",\"age\":42}"
+        .getBytes(StandardCharsets.UTF_8));
+    CharSequence view = parser.getCurrentCharSequence();
+    char[] dst = new char[8];
+
+    assertEquals(JsonEvent.START_OBJECT, parser.nextEvent());
+    assertEquals(JsonEvent.FIELD_NAME, parser.nextEvent());
+    assertEquals(4, parser.getCurrentLength());
+    assertEquals(4, view.length());
+    assertEquals('n', view.charAt(0));
+    assertEquals("am", view.subSequence(1, 3).toString());
+    assertEquals("name", view.toString());
+
+    assertEquals(JsonEvent.VALUE_STRING, parser.nextEvent());
+    assertEquals(5, parser.copyCurrentTo(dst, 2));
+    assertEquals("Elvis", new String(dst, 2, 5));
+    assertEquals("Elvis", view.toString());
+
+    assertEquals(JsonEvent.FIELD_NAME, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_INT, parser.nextEvent());
+    assertEquals("42", view.toString());
+    assertTrue(view == parser.getCurrentCharSequence());
+  }
+
+  /**
+   * Parse the given JSON text and collect all field names and string values
+   * @param parser the parser to use
+   * @param json the JSON text
+   * @return the field names and string values
+   */
+  private static List<String> parseStrings(JsonParser parser, byte[] json) {
+    List<String> result = new ArrayList<>();
+    int i = 0;
+    int event;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += parser.getFeeder().feed(json, i, json.length - i);
+        if (i == json.length) {
+          parser.getFeeder().done();
+        }
+      }
+      assertFalse(event == JsonEvent.ERROR);
+      if (event == JsonEvent.FIELD_NAME || event == JsonEvent.VALUE_STRING) {
+        result.add(parser.getCurrentString());
+      }
+    } while (event != JsonEvent.EOF);
+    return result;
+  }
+
+  /**
+   * Test if field names are canonicalized
+   */
+  @Test
+  public void canonicalizeFieldNames() {
+    byte[] json = ("[{\"id\":1,\"n\\u00e4me\":\"id\"}," +
+        "{\"id\":2,\"n\u00e4me\":\"id\"}," +
+        "{\"id\":3,\"n\u00e4me\":\"id\"}]").getBytes(StandardCharsets.UTF_8);
+    JsonParser[] parsers = {
+      new JsonParser(),
+      new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 3)),
+      new JsonParser(new Utf8JsonFeeder(2)),
+      new JsonParser(new CharByCharFeeder())
+    };
+    for (JsonParser parser : parsers) {
+      assertFalse(parser.isCanonicalizeFieldNames());
+      parser.setCanonicalizeFieldNames(true);
+      assertTrue(parser.isCanonicalizeFieldNames());
+
+      List<String> strings = parseStrings(parser, json);
+      assertEquals(9, strings.size());
+      for (int i = 0; i < strings.size(); i += 3) {
+        assertEquals("id", strings.get(i));
+        assertEquals("n\u00e4me", strings.get(i + 1));
+        assertEquals("id", strings.get(i + 2));
+        assertSame(strings.get(0), strings.get(i));
+        assertSame(strings.get(1), strings.get(i + 1));
+        // values are not canonicalized
+        assertNotSame(strings.get(0), strings.get(i + 2));
+      }
+    }
+  }
+
+  /**
+   * Test if field names are not canonicalized by default
+   */
+  @Test
+  public void doNotCanonicalizeFieldNames() {
+    List<String> strings = parseStrings(new JsonParser(),
+        "[{\"id\":1},{\"id\":2}]".getBytes(StandardCharsets.UTF_8));
+    assertEquals(2, strings.size());
+    assertEquals(strings.get(0), strings.get(1));
+    assertNotSame(strings.get(0), strings.get(1));
+  }
+
+  /**
+   * Test if field IDs are determined correctly
+   */
+  @Test
+  public void fieldIds() {
+    FieldSet fields = FieldSet.of("id", "n\u00e4me", "value");
+    byte[] json = ("{\"id\":1,\"n\\u00e4me\":\"id\",\"other\":true," +
+        "\"value\":{\"n\u00e4me\":null}}").getBytes(StandardCharsets.UTF_8);
+    int[] expected = { 0, 1, -1, 2, 1 };
+    JsonParser[] parsers = {
+      new JsonParser(),
+      new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 3)),
+      new JsonParser(new Utf8JsonFeeder(2)),
+      new JsonParser(new CharByCharFeeder())
+    };
+    for (JsonParser parser : parsers) {
+      List<Integer> ids = new ArrayList<>();
+      int i = 0;
+      int event;
+      do {
+        while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+          i += parser.getFeeder().feed(json, i, json.length - i);
+          if (i == json.length) {
+            parser.getFeeder().done();
+          }
+        }
+        assertFalse(event == JsonEvent.ERROR);
+        if (event == JsonEvent.FIELD_NAME) {
+          ids.add(parser.getCurrentFieldId(fields));
+        } else {
+          // values and other events following a field name never have an ID
+          assertEquals(-1, parser.getCurrentFieldId(fields));
+        }
+      } while (event != JsonEvent.EOF);
+
+      assertEquals(expected.length, ids.size());
+      for (int j = 0; j < expected.length; ++j) {
+        assertEquals(expected[j], (int)ids.get(j));
+      }
+    }
+  }
+
+  /**
+   * Test if objects and arrays can be skipped
+   */
+  @Test
+  public void skipChildren() {
+    byte[] json = ("{\"a\":{\"x\":[1,\"}]\\\\\",\"\\\"]\",{\"y\":null}]," +
+        "\"z\":\"{\u00e4\"},\"b\":[1,[2]],\"c\":[],\"d\":3}")
+        .getBytes(StandardCharsets.UTF_8);
+    JsonParser[] parsers = {
+      new JsonParser(),
+      new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 3)),
+      new JsonParser(new Utf8JsonFeeder()),
+      new JsonParser(new Utf8JsonFeeder(2)),
+      new JsonParser(new CharByCharFeeder())
+    };
+    for (JsonParser parser : parsers) {
+      List<String> events = new ArrayList<>();
+      int i = 0;
+      int event;
+      do {
+        while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+          i += parser.getFeeder().feed(json, i, json.length - i);
+          if (i == json.length) {
+            parser.getFeeder().done();
+          }
+        }
+        assertFalse(event == JsonEvent.ERROR);
+        if (event == JsonEvent.FIELD_NAME) {
+          events.add(parser.getCurrentString());
+        } else {
+          events.add(String.valueOf(event));
+          if ((event == JsonEvent.START_OBJECT ||
+              event == JsonEvent.START_ARRAY) && events.size() > 1) {
+            parser.skipChildren();
+          }
+        }
+      } while (event != JsonEvent.EOF);
+
+      assertEquals(Arrays.asList("1", "a", "1", "2", "b", "3", "4",
+          "c", "3", "4", "d", "7", "2", "99"), events);
+      // the JSON text contains one two-byte character
+      assertEquals(json.length - 1, parser.getParsedCharacterCount());
+      assertEquals(json.length, parser.getParsedByteCount());
+    }
+  }
+
+  /**
+   * Test if skipChildren() can only be called after the start of an
+   * object or array
+   */
+  @Test(expected = IllegalStateException.class)
+  public void skipChildrenIllegalState() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+    assertEquals(JsonEvent.START_OBJECT, parser.nextEvent());
+    assertEquals(JsonEvent.FIELD_NAME, parser.nextEvent());
+    parser.skipChildren();
+  }
+
+  /**
+   * Test if mismatched brackets and incomplete containers are detected
+   * while skipping
+   */
+  @Test
+  public void skipChildrenError() {
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed("[{]".getBytes(StandardCharsets.UTF_8));
+    assertEquals(JsonEvent.START_ARRAY, parser.nextEvent());
+    assertEquals(JsonEvent.START_OBJECT, parser.nextEvent());
+    parser.skipChildren();
+    assertEquals(JsonEvent.ERROR, parser.nextEvent());
+
+    parser = new JsonParser();
+    parser.getFeeder().feed("[[1,2".getBytes(StandardCharsets.UTF_8));
+    assertEquals(JsonEvent.START_ARRAY, parser.nextEvent());
+    parser.skipChildren();
+    assertEquals(JsonEvent.NEED_MORE_INPUT, parser.nextEvent());
+    parser.getFeeder().done();
+    assertEquals(JsonEvent.ERROR, parser.nextEvent());
+  }
+
+  /**
+   * Test if the start and end offsets of all tokens are correct
+   */
+  @Test
+  public void tokenOffsets() {
+    String str = "{\"n\u00e4me\" : \"\u20ac\ud83d\ude00\\\"x\",\"a\":[1, -2.5e3 ," +
+        "true,false,null,{}],\"b\":[[\"\u00e4\"]],\"c\":0}";
+    byte[] json = str.getBytes(StandardCharsets.UTF_8);
+    List<String> expected = Arrays.asList("{", "\"n\u00e4me\"",
+        "\"\u20ac\ud83d\ude00\\\"x\"", "\"a\"", "[", "1", "-2.5e3", "true",
+        "false", "null", "{", "}", "]", "\"b\"", "[", "]", "\"c\"", "0", "}",
+        "");
+    JsonParser[] parsers = {
+      new JsonParser(),
+      new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 5)),
+      new JsonParser(new Utf8JsonFeeder()),
+      new JsonParser(new Utf8JsonFeeder(2)),
+      new JsonParser(new CharByCharFeeder())
+    };
+    for (JsonParser parser : parsers) {
+      List<String> tokens = new ArrayList<>();
+      int i = 0;
+      int event;
+      do {
+        while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+          i += parser.getFeeder().feed(json, i, json.length - i);
+          if (i == json.length) {
+            parser.getFeeder().done();
+          }
+        }
+        assertFalse(event == JsonEvent.ERROR);
+
+        int start = (int)parser.getTokenStartOffset();
+        int end = (int)parser.getTokenEndOffset();
+        String token = new String(json, start, end - start,
+            StandardCharsets.UTF_8);
+        assertEquals(token, str.substring(
+            (int)parser.getTokenStartCharOffset(),
+            (int)parser.getTokenEndCharOffset()));
+        tokens.add(token);
+
+        if (event == JsonEvent.START_ARRAY && tokens.size() == 15) {
+          parser.skipChildren();
+        }
+      } while (event != JsonEvent.EOF);
+
+      assertEquals(expected, tokens);
+    }
+  }
+
+  /**
+   * Parse a JSON text consisting of multiple top-level values and convert
+   * each value with a {@link PrettyPrinter}
+   * @param parser the parser to use
+   * @param json the JSON text to parse
+   * @return the converted values without whitespace and, for each error,
+   * the string <code>"error"</code>. Parsing stops at the first error
+   * unless the framing is {@link JsonFraming#TEXT_SEQUENCE}.
+   */
+  private static List<String> parseDocuments(JsonParser parser, String json) {
+    byte[] buf = json.getBytes(StandardCharsets.UTF_8);
+    List<String> result = new ArrayList<>();
+    PrettyPrinter printer = new PrettyPrinter();
+    int i = 0;
+    int event;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += parser.getFeeder().feed(buf, i, buf.length - i);
+        if (i == buf.length) {
+          parser.getFeeder().done();
+        }
+      }
+      if (event == JsonEvent.ERROR) {
+        result.add("error");
+        if (parser.getFraming() != JsonFraming.TEXT_SEQUENCE) {
+          break;
+        }
+        printer = new PrettyPrinter();
+      } else if (event == JsonEvent.END_DOCUMENT) {
+        result.add(printer.getResult().replaceAll("\\s", ""));
+        printer = new PrettyPrinter();
+      } else {
+        printer.onEvent(event, parser);
+      }
+    } while (event != JsonEvent.EOF);
+    return result;
+  }
+
+  /**
+   * Parse a JSON text with all kinds of feeders and the given framing
+   * @param framing the framing
+   * @param json the JSON text to parse
+   * @return the converted values (see
+   * {@link #parseDocuments(JsonParser, String)})
+   */
+  private static List<String> parseDocuments(int framing, String json) {
+    JsonParser[] parsers = {
+      new JsonParser(),
+      new JsonParser(new Utf8JsonFeeder(4)),
+      new JsonParser(new CharByCharFeeder())
+    };
+    List<String> result = null;
+    for (JsonParser parser : parsers) {
+      parser.setFraming(framing);
+      List<String> r = parseDocuments(parser, json);
+      if (result != null) {
+        assertEquals(result, r);
+      }
+      result = r;
+    }
+    return result;
+  }
+
+  /**
+   * Test if a parser can parse newline-delimited JSON
+   */
+  @Test
+  public void lineDelimited() {
+    assertEquals(Arrays.asList("{\"a\":1}", "[1,2]", "\"x\"", "3",
+        "true", "-1.5", "null"),
+        parseDocuments(JsonFraming.LINE_DELIMITED, "{\"a\":1}\n" +
+            "[1,2]\r\n\n  \"x\"\n3\n true \n-1.5\nnull"));
+    assertEquals(Arrays.asList("{\"a\":[]}", "42"),
+        parseDocuments(JsonFraming.LINE_DELIMITED, "\n{\"a\":\n[]}\n42\n\n"));
+    assertEquals(Arrays.<String>asList(),
+        parseDocuments(JsonFraming.LINE_DELIMITED, ""));
+    assertEquals(Arrays.<String>asList(),
+        parseDocuments(JsonFraming.LINE_DELIMITED, " \n\n "));
+  }
+
+  /**
+   * Test if a parser reports errors in newline-delimited JSON
+   */
+  @Test
+  public void lineDelimitedErrors() {
+    assertEquals(Arrays.asList("{}", "error"),
+        parseDocuments(JsonFraming.LINE_DELIMITED, "{} {}"));
+    assertEquals(Arrays.asList("1", "error"),
+        parseDocuments(JsonFraming.LINE_DELIMITED, "1 2\n"));
+    assertEquals(Arrays.asList("[1]", "error"),
+        parseDocuments(JsonFraming.LINE_DELIMITED, "[1]\n[2"));
+    assertEquals(Arrays.asList("error"),
+        parseDocuments(JsonFraming.LINE_DELIMITED, "]\n"));
+    assertEquals(Arrays.asList("error"),
+        parseDocuments(JsonFraming.SINGLE, "{}\n{}"));
+  }
+
+  /**
+   * Test if a parser can parse concatenated JSON
+   */
+  @Test
+  public void concatenated() {
+    assertEquals(Arrays.asList("{\"a\":1}", "{\"b\":2}", "[]", "\"x\"",
+        "\"y\"", "1", "2", "true", "false", "null", "3"),
+        parseDocuments(JsonFraming.CONCATENATED, "{\"a\":1}{\"b\":2}[]" +
+            "\"x\"\"y\" 1\n2 truefalse null 3"));
+    assertEquals(Arrays.<String>asList(),
+        parseDocuments(JsonFraming.CONCATENATED, "  "));
+    assertEquals(Arrays.asList("{}", "error"),
+        parseDocuments(JsonFraming.CONCATENATED, "{}}"));
+    assertEquals(Arrays.asList("1", "error"),
+        parseDocuments(JsonFraming.CONCATENATED, "1 ,2"));
+    assertEquals(Arrays.asList("[1]", "error"),
+        parseDocuments(JsonFraming.CONCATENATED, "[1][2"));
+
+    // values directly following numbers
+    assertEquals(Arrays.asList("2", "{}", "-2.5", "\"a\"", "0", "[1]",
+        "1000.0", "true", "7", "false", "0", "null", "1"),
+        parseDocuments(JsonFraming.CONCATENATED, "2{}-2.5\"a\"0[1]1e3true" +
+            "7false0null1"));
+    assertEquals(Arrays.asList("1", "error"),
+        parseDocuments(JsonFraming.CONCATENATED, "1 1-2"));
+    assertEquals(Arrays.asList("error"),
+        parseDocuments(JsonFraming.CONCATENATED, "1e{}"));
+  }
+
+  /**
+   * Test if a parser can parse JSON text sequences
+   */
+  @Test
+  public void textSequence() {
+    assertEquals(Arrays.asList("{\"a\":1}", "[1,2]", "\"x\"", "3",
+        "true", "null"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e{\"a\":1}\n" +
+            "\u001e[1,2]\u001e\u001e\"x\"\n\u001e 3\n\u001etrue " +
+            "\u001e\u001enull\n"));
+    assertEquals(Arrays.<String>asList(),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, ""));
+    assertEquals(Arrays.<String>asList(),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e\n\u001e"));
+
+    // missing record separator
+    assertEquals(Arrays.asList("error"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "{}\n"));
+    assertEquals(Arrays.asList("{}", "error"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e{}{}"));
+    assertEquals(Arrays.asList("{}", "error", "[1]"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e{}{}\u001e[1]"));
+
+    // truncated values
+    assertEquals(Arrays.asList("error", "{}"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e{\"a\":\u001e{}"));
+    assertEquals(Arrays.asList("error", "{}"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e12\u001e{}"));
+    assertEquals(Arrays.asList("error", "2"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e1\u001e2\n"));
+    assertEquals(Arrays.asList("error"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e12"));
+    assertEquals(Arrays.asList("error", "{}"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001etrue\u001e{}"));
+    assertEquals(Arrays.asList("error", "true"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001etr\u001etrue\n"));
+    assertEquals(Arrays.asList("error"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001enull"));
+
+    // malformed texts
+    assertEquals(Arrays.asList("error", "[1]", "error", "\"b\""),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e{]\n\u001e[1]\n" +
+            "\u001e[\"\u00e4\"x\"\u001e\u001e\"b\"\n"));
+
+    // record separators are not allowed inside values
+    assertEquals(Arrays.asList("error", "error"),
+        parseDocuments(JsonFraming.TEXT_SEQUENCE, "\u001e\"a\u001e\"\n"));
+  }
+
+  /**
+   * Test that a literal is only returned if it has not been truncated
+   */
+  @Test
+  public void textSequenceTruncatedLiteral() {
+    byte[] json = "\u001etrue\u001e[]".getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.setFraming(JsonFraming.TEXT_SEQUENCE);
+    parser.getFeeder().feed(json, 0, json.length);
+    parser.getFeeder().done();
+    assertEquals(JsonEvent.ERROR, parser.nextEvent());
+    assertEquals(JsonEvent.START_ARRAY, parser.nextEvent());
+    assertEquals(JsonEvent.END_ARRAY, parser.nextEvent());
+    assertEquals(JsonEvent.END_DOCUMENT, parser.nextEvent());
+    assertEquals(JsonEvent.EOF, parser.nextEvent());
+  }
+
+  /**
+   * Test if an unknown framing is rejected
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownFraming() {
+    new JsonParser().setFraming(4);
+  }
+
+  /**
+   * Test if a parser can be reset and reused
+   */
+  @Test
+  public void reset() {
+    String json1 = "{\"a\":[1,2.5,\"\u00e4\\n\u20ac\"],\"b\":";
+    String json2 = "{\"c\":\"\u00f6\\u00e4\",\"d\":[true,-12e3,null]}";
+    String expected = parse(json2);
+    JsonParser[] parsers = {
+      new JsonParser(),
+      new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 5)),
+      new JsonParser(new ByteBufferJsonFeeder(StandardCharsets.UTF_8, 4)),
+      new JsonParser(new RingBufferJsonFeeder(StandardCharsets.UTF_8, 4)),
+      new JsonParser(new Utf8JsonFeeder(4)),
+      new JsonParser(new CharByCharFeeder())
+    };
+    for (JsonParser parser : parsers) {
+      // stop in the middle of a text, in the middle of a UTF-8 sequence,
+      // and after an error
+      byte[] buf1 = json1.getBytes(StandardCharsets.UTF_8);
+      byte[] buf2 = "]".getBytes(StandardCharsets.UTF_8);
+      for (int n : new int[] { buf1.length, 16, 14, 3, -1 }) {
+        byte[] buf = buf1;
+        if (n < 0) {
+          buf = buf2;
+          n = buf2.length;
+        }
+        int i = 0;
+        int event;
+        while ((event = parser.nextEvent()) != JsonEvent.ERROR &&
+            event != JsonEvent.EOF) {
+          if (event == JsonEvent.NEED_MORE_INPUT) {
+            if (i == n) {
+              break;
+            }
+            i += parser.getFeeder().feed(buf, i, n - i);
+          }
+        }
+        parser.reset();
+        assertEquals(expected, parse(json2, parser));
+        parser.reset();
+        assertEquals(0, parser.getParsedCharacterCount());
+      }
+    }
+  }
+
+  /**
+   * Test if a parser keeps its framing when it is reset
+   */
+  @Test
+  public void resetFraming() {
+    JsonParser parser = new JsonParser();
+    parser.setFraming(JsonFraming.TEXT_SEQUENCE);
+    assertEquals(Arrays.asList("1", "error"),
+        parseDocuments(parser, "\u001e1\n{}"));
+    parser.reset();
+    assertEquals(Arrays.asList("{}", "[]"),
+        parseDocuments(parser, "\u001e{}\u001e[]"));
+    assertEquals(JsonFraming.TEXT_SEQUENCE, parser.getFraming());
+  }
+
+  /**
+   * Parse a JSON text and join string values delivered in parts
+   * @param parser the parser to use
+   * @param json the JSON text to parse
+   * @param maxPartLength the maximum number of characters per part
+   * @return the field names and string values as well as the tokens of the
+   * string values in the JSON text
+   */
+  private static List<String> parseParts(JsonParser parser, byte[] json,
+      int maxPartLength) {
+    List<String> result = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    StringBuilder token = new StringBuilder();
+    long lastEnd = -1;
+    int i = 0;
+    int event;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += parser.getFeeder().feed(json, i, json.length - i);
+        if (i == json.length) {
+          parser.getFeeder().done();
+        }
+      }
+      assertFalse(event == JsonEvent.ERROR);
+      if (event == JsonEvent.FIELD_NAME) {
+        result.add("F:" + parser.getCurrentString());
+      } else if (event == JsonEvent.VALUE_STRING_PART ||
+          event == JsonEvent.VALUE_STRING) {
+        int start = (int)parser.getTokenStartOffset();
+        int end = (int)parser.getTokenEndOffset();
+        if (lastEnd >= 0) {
+          // parts must be contiguous
+          assertEquals(lastEnd, start);
+        }
+        token.append(new String(json, start, end - start,
+            StandardCharsets.UTF_8));
+        value.append(parser.getCurrentString());
+        if (event == JsonEvent.VALUE_STRING_PART) {
+          assertTrue(parser.getCurrentString().length() <= maxPartLength);
+          lastEnd = end;
+        } else {
+          result.add("S:" + value);
+          result.add("T:" + token);
+          value.setLength(0);
+          token.setLength(0);
+          lastEnd = -1;
+        }
+      }
+    } while (event != JsonEvent.EOF);
+    return result;
+  }
+
+  /**
+   * Test if long string values are delivered in parts
+   */
+  @Test
+  public void stringParts() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 40; ++i) {
+      sb.append((char)('a' + (i % 26)));
+    }
+    String str = "{\"" + sb + "\":[\"" + sb + "\",\"\u00e4\\n\u20ac" +
+        "\ud83d\ude00x\\ud83d\\ude00\\u00f6\\\"y\",\"\",\"z\"]," +
+        "\"b\":\"\ud83d\ude00\ud83d\ude00\ud83d\ude00\"}";
+    byte[] json = str.getBytes(StandardCharsets.UTF_8);
+    List<String> expected = parseParts(new JsonParser(), json,
+        Integer.MAX_VALUE);
+    for (int threshold : new int[] { 1, 2, 3, 5, 7, 16, 100 }) {
+      JsonParser[] parsers = {
+        new JsonParser(),
+        new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 5)),
+        new JsonParser(new Utf8JsonFeeder()),
+        new JsonParser(new Utf8JsonFeeder(4)),
+        new JsonParser(new CharByCharFeeder())
+      };
+      for (JsonParser parser : parsers) {
+        parser.setStringPartThreshold(threshold);
+        assertEquals(threshold, parser.getStringPartThreshold());
+        assertEquals(expected, parseParts(parser, json, threshold + 1));
+      }
+    }
+  }
+
+  /**
+   * Test that a top-level string split into parts ends the document only
+   * once
+   */
+  @Test
+  public void stringPartsTopLevel() {
+    byte[] json = "\"abcde\"\n1".getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.setFraming(JsonFraming.LINE_DELIMITED);
+    parser.setStringPartThreshold(2);
+    parser.getFeeder().feed(json);
+    parser.getFeeder().done();
+    assertEquals(JsonEvent.VALUE_STRING_PART, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_STRING_PART, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_STRING, parser.nextEvent());
+    assertEquals("e", parser.getCurrentString());
+    assertEquals(JsonEvent.END_DOCUMENT, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_INT, parser.nextEvent());
+    assertEquals(JsonEvent.END_DOCUMENT, parser.nextEvent());
+    assertEquals(JsonEvent.EOF, parser.nextEvent());
+  }
+
+  /**
+   * Test that strings are not split if no threshold is set and that field
+   * names are never split
+   */
+  @Test
+  public void stringPartsDisabled() {
+    byte[] json = "{\"abcdef\":\"ghijkl\"}".getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    assertEquals(0, parser.getStringPartThreshold());
+    parser.setStringPartThreshold(2);
+    parser.setStringPartThreshold(0);
+    assertEquals(Arrays.asList("abcdef", "ghijkl"),
+        parseStrings(parser, json));
+
+    parser = new JsonParser();
+    parser.setStringPartThreshold(4);
+    List<Integer> events = new ArrayList<>();
+    List<String> values = new ArrayList<>();
+    int event;
+    parser.getFeeder().feed(json, 0, json.length);
+    parser.getFeeder().done();
+    while ((event = parser.nextEvent()) != JsonEvent.EOF) {
+      events.add(event);
+      if (event == JsonEvent.FIELD_NAME ||
+          event == JsonEvent.VALUE_STRING_PART ||
+          event == JsonEvent.VALUE_STRING) {
+        values.add(parser.getCurrentString());
+      }
+    }
+    assertEquals(Arrays.asList(JsonEvent.START_OBJECT, JsonEvent.FIELD_NAME,
+        JsonEvent.VALUE_STRING_PART, JsonEvent.VALUE_STRING,
+        JsonEvent.END_OBJECT), events);
+    assertEquals(Arrays.asList("abcdef", "ghij", "kl"), values);
+  }
+
+  /**
+   * Test if string parts are returned in a batch
+   */
+  @Test
+  public void stringPartsBatch() {
+    byte[] json = "[\"abcdefghij\"]".getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.setStringPartThreshold(4);
+    parser.getFeeder().feed(json, 0, json.length);
+    parser.getFeeder().done();
+    JsonEventBatch batch = new JsonEventBatch(16);
+    parser.nextEvents(batch);
+    assertEquals(6, batch.size());
+    assertEquals(JsonEvent.VALUE_STRING_PART, batch.getEvent(1));
+    assertEquals("abcd", batch.getString(1));
+    assertEquals("efgh", batch.getString(2));
+    assertEquals(JsonEvent.VALUE_STRING, batch.getEvent(3));
+    assertEquals("ij", batch.getString(3));
+  }
+
+  /**
+   * Test if a parser can be reused after it has collected a huge string
+   */
+  @Test
+  public void resetHugeString() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100000; ++i) {
+      sb.append('a');
+    }
+    String json = "[\"" + sb + "\"]";
+    JsonParser parser = new JsonParser();
+    assertEquals(parse(json), parse(json, parser));
+    parser.reset();
+    assertEquals(parse("[\"b\"]"), parse("[\"b\"]", parser));
+  }
+
+  /**
+   * Parse a JSON text and decode every string value as base64
+   * @param parser the parser to use
+   * @param json the JSON text to parse
+   * @param bufferSize the size of the buffer to decode into
+   * @return the decoded string values or <code>null</code> if an error
+   * occurred
+   */
+  private static List<byte[]> parseBase64(JsonParser parser, byte[] json,
+      int bufferSize) {
+    List<byte[]> result = new ArrayList<>();
+    ByteBuffer target = ByteBuffer.allocate(bufferSize);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int i = 0;
+    int event;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += parser.getFeeder().feed(json, i, json.length - i);
+        if (i == json.length) {
+          parser.getFeeder().done();
+        }
+      }
+      if (event == JsonEvent.ERROR) {
+        return null;
+      }
+      if (event == JsonEvent.VALUE_STRING_PART ||
+          event == JsonEvent.VALUE_STRING) {
+        assertEquals("", parser.getCurrentString());
+        target.flip();
+        out.write(target.array(), 0, target.limit());
+        target.clear();
+        if (event == JsonEvent.VALUE_STRING) {
+          result.add(out.toByteArray());
+          out.reset();
+        }
+      }
+      if (event == JsonEvent.START_ARRAY || event == JsonEvent.FIELD_NAME ||
+          event == JsonEvent.VALUE_STRING_PART ||
+          event == JsonEvent.VALUE_STRING) {
+        parser.decodeBase64(target);
+      }
+    } while (event != JsonEvent.EOF);
+    return result;
+  }
+
+  /**
+   * Test if string values can be decoded as base64
+   */
+  @Test
+  public void decodeBase64() {
+    Random rnd = new Random(1234);
+    List<byte[]> values = new ArrayList<>();
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < 40; ++i) {
+      byte[] value = new byte[i < 20 ? i : rnd.nextInt(200)];
+      rnd.nextBytes(value);
+      values.add(value);
+      if (i > 0) {
+        sb.append(",");
+      }
+      String encoded = Base64Variants.MIME_NO_LINEFEEDS.encode(value);
+      if (i % 3 == 0) {
+        // escaped characters are decoded as well
+        encoded = encoded.replace("/", "\\/").replace("A", "\\u0041");
+      }
+      sb.append("\"").append(encoded).append("\"");
+    }
+    sb.append("]");
+    byte[] json = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+    for (int bufferSize : new int[] { 1, 3, 16, 1000 }) {
+      JsonParser[] parsers = {
+        new JsonParser(),
+        new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 5)),
+        new JsonParser(new Utf8JsonFeeder()),
+        new JsonParser(new Utf8JsonFeeder(4)),
+        new JsonParser(new CharByCharFeeder())
+      };
+      for (JsonParser parser : parsers) {
+        List<byte[]> result = parseBase64(parser, json, bufferSize);
+        assertEquals(values.size(), result.size());
+        for (int i = 0; i < values.size(); ++i) {
+          assertTrue(Arrays.equals(values.get(i), result.get(i)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test if invalid base64 string values are rejected
+   */
+  @Test
+  public void decodeBase64Invalid() {
+    for (String valid : new String[] { "", "YQ", "YQ==", "YWI", "YWI=",
+        "YWJj" }) {
+      byte[] json = ("[\"" + valid + "\"]").getBytes(StandardCharsets.UTF_8);
+      List<byte[]> result = parseBase64(new JsonParser(), json, 8);
+      assertEquals(1, result.size());
+    }
+    for (String invalid : new String[] { "Y", "YWJjZ", "Y===", "YQ=", "Y=Q=",
+        "YQ\\n", "YQ-_", "\u00e4", "\ud83d\ude00" }) {
+      byte[] json = ("[\"" + invalid + "\"]").getBytes(
+          StandardCharsets.UTF_8);
+      assertEquals(null, parseBase64(new JsonParser(), json, 8));
+      assertEquals(null, parseBase64(new JsonParser(new Utf8JsonFeeder()),
+          json, 8));
+    }
+  }
+
+  /**
+   * Test that only the next value is decoded as base64
+   */
+  @Test
+  public void decodeBase64NextValueOnly() {
+    byte[] json = "{\"a\":1,\"b\":\"YWJj\"}".getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed(json, 0, json.length);
+    parser.getFeeder().done();
+    ByteBuffer target = ByteBuffer.allocate(8);
+    assertEquals(JsonEvent.START_OBJECT, parser.nextEvent());
+    assertEquals(JsonEvent.FIELD_NAME, parser.nextEvent());
+    parser.decodeBase64(target);
+    assertEquals(JsonEvent.VALUE_INT, parser.nextEvent());
+    assertEquals(1, parser.getCurrentInt());
+    assertEquals(JsonEvent.FIELD_NAME, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_STRING, parser.nextEvent());
+    assertEquals("YWJj", parser.getCurrentString());
+    assertEquals(0, target.position());
+    assertEquals(JsonEvent.END_OBJECT, parser.nextEvent());
+    assertEquals(JsonEvent.EOF, parser.nextEvent());
+  }
+
+  /**
+   * Test that the parser does not continue decoding a base64 value if
+   * there is no room in the buffer
+   */
+  @Test
+  public void decodeBase64Full() {
+    byte[] json = "[\"YWJjZGVm\",1]".getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed(json, 0, json.length);
+    parser.getFeeder().done();
+    ByteBuffer target = ByteBuffer.allocate(2);
+    assertEquals(JsonEvent.START_ARRAY, parser.nextEvent());
+    parser.decodeBase64(target);
+    assertEquals(JsonEvent.VALUE_STRING_PART, parser.nextEvent());
+    try {
+      parser.nextEvent();
+      fail("nextEvent() must fail if the buffer is full");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    // the parser continues after the caller has made room in the buffer
+    target.clear();
+    assertEquals(JsonEvent.VALUE_STRING_PART, parser.nextEvent());
+    target.clear();
+    assertEquals(JsonEvent.VALUE_STRING_PART, parser.nextEvent());
+    assertEquals("ef", new String(target.array(), StandardCharsets.UTF_8));
+    target.clear();
+    assertEquals(JsonEvent.VALUE_STRING, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_INT, parser.nextEvent());
+    assertEquals(JsonEvent.END_ARRAY, parser.nextEvent());
+  }
+
+  /**
+   * Test that {@link JsonParser#nextEvents(int[], int)} stops after a part
+   * of a base64 value
+   */
+  @Test
+  public void decodeBase64Batch() {
+    byte[] json = "[\"YWJjZGVm\",1]".getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.getFeeder().feed(json, 0, json.length);
+    parser.getFeeder().done();
+    ByteBuffer target = ByteBuffer.allocate(4);
+    int[] events = new int[10];
+    assertEquals(1, parser.nextEvents(events, 1));
+    parser.decodeBase64(target);
+    assertEquals(1, parser.nextEvents(events, 10));
+    assertEquals(JsonEvent.VALUE_STRING_PART, events[0]);
+    assertEquals("abcd", new String(target.array(), StandardCharsets.UTF_8));
+    target.clear();
+    assertEquals(4, parser.nextEvents(events, 10));
+    assertEquals(JsonEvent.VALUE_STRING, events[0]);
+    assertEquals(JsonEvent.EOF, events[3]);
+    assertEquals(2, target.position());
+  }
+
+  /**
+   * Create a parser for the checkpoint tests
+   * @param type the type of the parser's feeder
+   * @return the parser
+   */
+  private static JsonParser newCheckpointParser(int type) {
+    switch (type) {
+    case 0:
+      return new JsonParser(new DefaultJsonFeeder(StandardCharsets.UTF_8, 5));
+    case 1:
+      return new JsonParser(new Utf8JsonFeeder(3));
+    default:
+      return new JsonParser(new RingBufferJsonFeeder(
+          StandardCharsets.UTF_8, 5));
+    }
+  }
+
+  /**
+   * Parse a JSON text and record all events
+   * @param parser the parser to use
+   * @param json the JSON text to parse
+   * @param offset the offset of the first byte to feed
+   * @param max the maximum number of calls to {@link JsonParser#nextEvent()}
+   * @param skipOffset the byte offset of an array to skip
+   * @param result a list the events, their values and their token offsets
+   * are added to
+   */
+  private static void parseEvents(JsonParser parser, byte[] json,
+      int offset, int max, long skipOffset, List<String> result) {
+    int i = offset;
+    for (int n = 0; n < max; ++n) {
+      int event = parser.nextEvent();
+      if (event == JsonEvent.NEED_MORE_INPUT) {
+        if (i < json.length) {
+          i += parser.getFeeder().feed(json, i, Math.min(3, json.length - i));
+        } else {
+          parser.getFeeder().done();
+        }
+        continue;
+      }
+      String value = "";
+      if (event == JsonEvent.FIELD_NAME || event == JsonEvent.VALUE_STRING ||
+          event == JsonEvent.VALUE_INT || event == JsonEvent.VALUE_DOUBLE) {
+        value = parser.getCurrentString();
+      }
+      if (event == JsonEvent.VALUE_INT) {
+        value += "=" + parser.getCurrentBigInteger();
+      }
+      result.add(event + ":" + value + ":" + parser.getTokenStartOffset() +
+          "-" + parser.getTokenEndOffset());
+      if (event == JsonEvent.START_ARRAY &&
+          parser.getTokenStartOffset() == skipOffset) {
+        parser.skipChildren();
+      }
+      if (event == JsonEvent.EOF || event == JsonEvent.ERROR) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Test if parsing can be resumed from a checkpoint created at any
+   * position
+   */
+  @Test
+  public void checkpoint() {
+    String str = "{\"n\u00e4me\":\"\u20ac\ud83d\ude00\\u00e4\\\"x\"," +
+        "\"a\":[1,-2.5e3,true,false,null,{}],\"skip\":[[\"\u00e4\"," +
+        "{\"x\":\"]\"}]],\"c\":12345678901234567890,\"d\":\"\u00f6\"}";
+    byte[] json = str.getBytes(StandardCharsets.UTF_8);
+    long skipOffset = str.substring(0, str.indexOf("[[")).getBytes(
+        StandardCharsets.UTF_8).length;
+    List<String> expected = new ArrayList<>();
+    parseEvents(newCheckpointParser(1), json, 0, Integer.MAX_VALUE,
+        skipOffset, expected);
+    assertEquals("" + JsonEvent.EOF, expected.get(expected.size() - 1)
+        .split(":")[0]);
+
+    for (int from = 0; from < 3; ++from) {
+      for (int to = 0; to < 3; ++to) {
+        for (int cut = 0; cut < json.length * 3; ++cut) {
+          List<String> result = new ArrayList<>();
+          JsonParser parser = newCheckpointParser(from);
+          parseEvents(parser, json, 0, cut, skipOffset, result);
+          if (!result.isEmpty() && result.get(result.size() - 1)
+              .startsWith(JsonEvent.EOF + ":")) {
+            break;
+          }
+          byte[] checkpoint = parser.checkpoint();
+
+          JsonParser restored = newCheckpointParser(to);
+          try {
+            restored.restore(checkpoint);
+          } catch (IllegalArgumentException e) {
+            // a checkpoint created in the middle of a UTF-8 sequence
+            // cannot be restored in character mode
+            assertTrue(from == 1 && to != 1);
+            continue;
+          }
+          parseEvents(restored, json, (int)restored.getParsedByteCount(),
+              Integer.MAX_VALUE, skipOffset, result);
+          assertEquals(expected, result);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test if a checkpoint keeps the framing and pending events
+   */
+  @Test
+  public void checkpointFraming() {
+    JsonParser parser = new JsonParser();
+    parser.setFraming(JsonFraming.LINE_DELIMITED);
+    byte[] json = "[1]\n".getBytes(StandardCharsets.UTF_8);
+    parser.getFeeder().feed(json, 0, json.length);
+    assertEquals(JsonEvent.START_ARRAY, parser.nextEvent());
+    assertEquals(JsonEvent.VALUE_INT, parser.nextEvent());
+
+    JsonParser restored = new JsonParser();
+    restored.restore(parser.checkpoint());
+    assertEquals(JsonFraming.LINE_DELIMITED, restored.getFraming());
+    assertEquals(json.length - 1, restored.getParsedByteCount());
+    assertEquals(1, restored.getCurrentInt());
+    assertEquals(JsonEvent.END_ARRAY, restored.nextEvent());
+    assertEquals(JsonEvent.END_DOCUMENT, restored.nextEvent());
+    assertEquals(JsonEvent.NEED_MORE_INPUT, restored.nextEvent());
+    json = "\n2".getBytes(StandardCharsets.UTF_8);
+    restored.getFeeder().feed(json, 0, json.length);
+    restored.getFeeder().done();
+    assertEquals(JsonEvent.VALUE_INT, restored.nextEvent());
+    assertEquals(2, restored.getCurrentInt());
+    assertEquals(JsonEvent.END_DOCUMENT, restored.nextEvent());
+    assertEquals(JsonEvent.EOF, restored.nextEvent());
+  }
+
+  /**
+   * Test that no checkpoint can be created if the parser cannot determine
+   * the number of bytes it has consumed
+   */
+  @Test
+  public void checkpointOtherCharset() {
+    String str = "[\"\u00e4\u00f6\u00fc\",1,";
+    JsonParser[] parsers = {
+      new JsonParser(StandardCharsets.ISO_8859_1),
+      new JsonParser(new CharByCharFeeder())
+    };
+    byte[][] jsons = {
+      str.getBytes(StandardCharsets.ISO_8859_1),
+      str.getBytes(StandardCharsets.UTF_8)
+    };
+    for (int i = 0; i < parsers.length; ++i) {
+      JsonParser parser = parsers[i];
+      parser.getFeeder().feed(jsons[i], 0, jsons[i].length);
+      assertEquals(JsonEvent.START_ARRAY, parser.nextEvent());
+      try {
+        parser.checkpoint();
+        fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Test if a truncated checkpoint is rejected
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void checkpointTruncated() {
+    byte[] checkpoint = new JsonParser().checkpoint();
+    new JsonParser().restore(Arrays.copyOf(checkpoint,
+        checkpoint.length - 1));
+  }
+
+  /**
+   * Test if a checkpoint with an unknown version is rejected
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void checkpointUnknownVersion() {
+    byte[] checkpoint = new JsonParser().checkpoint();
+    checkpoint[7] = 99;
+    new JsonParser().restore(checkpoint);
+  }
+
+  /**
+   * Test that a corrupt checkpoint is either rejected without changing the
+   * parser or restored into a parser that does not fail unexpectedly
+   */
+  @Test
+  public void checkpointCorrupt() {
+    byte[] json = "{\"a\":[1,\"x\u00e4y\",{\"b\":null}]}".getBytes(
+        StandardCharsets.UTF_8);
+    List<String> expected = new ArrayList<>();
+    parseEvents(new JsonParser(), json, 0, Integer.MAX_VALUE, -1, expected);
+
+    JsonParser parser = newCheckpointParser(1);
+    parseEvents(parser, json, 0, 8, -1, new ArrayList<String>());
+    byte[] checkpoint = parser.checkpoint();
+
+    byte[] corruptions = new byte[] { 0x7F, (byte)0xFF, 5 };
+    for (int i = 0; i < checkpoint.length; ++i) {
+      for (byte b : corruptions) {
+        byte[] corrupt = checkpoint.clone();
+        corrupt[i] = b;
+
+        JsonParser restored = new JsonParser();
+        restored.getFeeder().feed(json);
+        parseEvents(restored, json, json.length, 3, -1,
+            new ArrayList<String>());
+        try {
+          restored.restore(corrupt);
+        } catch (IllegalArgumentException e) {
+          // the parser must still be usable
+          List<String> result = new ArrayList<>();
+          parseEvents(restored, json, json.length, Integer.MAX_VALUE, -1,
+              result);
+          assertEquals(expected.subList(3, expected.size()), result);
+          continue;
+        }
+
+        long resume = restored.getParsedByteCount();
+        parseEvents(restored, json, (int)Math.min(resume, json.length),
+            1000, -1, new ArrayList<String>());
+      }
+    }
+  }
+
+  /**
+   * Test that no checkpoint can be created while a string value is being
+   * decoded as base64
+   */
+  @Test(expected = IllegalStateException.class)
+  public void checkpointBase64() {
+    JsonParser parser = new JsonParser();
+    parser.decodeBase64(ByteBuffer.allocate(1));
+    parser.checkpoint();
+  }
 }
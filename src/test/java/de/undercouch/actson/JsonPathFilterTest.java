@@ -0,0 +1,229 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link JsonPathFilter}
+ * @author Michel Kraemer
+ */
+public class JsonPathFilterTest {
+  private static final String JSON = "{\"name\":\"Elvis\",\"items\":[" +
+      "{\"id\":1,\"tags\":[\"a\",\"b\"]},{\"id\":2,\"x\":{\"id\":3}}," +
+      "{\"tags\":[]}],\"a/b\":{\"c\":true},\"skip\":{\"name\":[1,[2]]}," +
+      "\"meta\":{\"v\":[1.5,null]}}";
+
+  /**
+   * Filter the test document and convert all returned events to strings
+   * @param json the JSON text to filter
+   * @param feedSize the number of bytes to feed at once
+   * @param paths the paths to match
+   * @return the events
+   */
+  private static List<String> filter(String json, int feedSize,
+      String... paths) {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    JsonPathFilter filter = new JsonPathFilter(new JsonParser(), paths);
+    List<String> result = new ArrayList<>();
+    int i = 0;
+    int event;
+    do {
+      while ((event = filter.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += filter.getFeeder().feed(bytes, i,
+            Math.min(feedSize, bytes.length - i));
+        if (i == bytes.length) {
+          filter.getFeeder().done();
+        }
+      }
+      switch (event) {
+      case JsonEvent.FIELD_NAME:
+      case JsonEvent.VALUE_STRING:
+      case JsonEvent.VALUE_INT:
+      case JsonEvent.VALUE_DOUBLE:
+        result.add(filter.getCurrentPathIndex() + ":" +
+            filter.getParser().getCurrentString());
+        break;
+      case JsonEvent.ERROR:
+        result.add("ERROR");
+        break;
+      case JsonEvent.EOF:
+        break;
+      default:
+        result.add(filter.getCurrentPathIndex() + ":" + event);
+        break;
+      }
+    } while (event != JsonEvent.EOF && event != JsonEvent.ERROR);
+    return result;
+  }
+
+  private static void assertFilter(List<String> expected, String json,
+      String... paths) {
+    assertEquals(expected, filter(json, Integer.MAX_VALUE, paths));
+    assertEquals(expected, filter(json, 1, paths));
+  }
+
+  /**
+   * Select a simple field
+   */
+  @Test
+  public void field() {
+    assertFilter(Arrays.asList("0:name", "0:Elvis"), JSON, "/name");
+  }
+
+  /**
+   * Select an object with all its children
+   */
+  @Test
+  public void object() {
+    assertFilter(Arrays.asList("0:meta", "0:1", "0:v", "0:3", "0:1.5",
+        "0:11", "0:4", "0:2"), JSON, "/meta");
+  }
+
+  /**
+   * Select array elements with a wildcard
+   */
+  @Test
+  public void wildcard() {
+    assertFilter(Arrays.asList("0:id", "0:1", "0:id", "0:2"), JSON,
+        "/items/*/id");
+    assertFilter(Arrays.asList("0:tags", "0:3", "0:a", "0:b", "0:4",
+        "0:tags", "0:3", "0:4"), JSON, "/items/*/tags");
+    assertFilter(Arrays.asList("0:b"), JSON, "/items/*/tags/1");
+    assertFilter(Arrays.asList("0:c", "0:9", "1:name", "1:3", "1:1", "1:3",
+        "1:2", "1:4", "1:4"), JSON, "/*/c", "/skip/*");
+  }
+
+  /**
+   * Select array elements by index
+   */
+  @Test
+  public void index() {
+    assertFilter(Arrays.asList("0:1", "0:id", "0:2", "0:x", "0:1", "0:id",
+        "0:3", "0:2", "0:2"), JSON, "/items/1");
+    assertFilter(Arrays.asList("0:b"), JSON, "/items/0/tags/1");
+  }
+
+  /**
+   * Select multiple paths
+   */
+  @Test
+  public void multiple() {
+    assertFilter(Arrays.asList("1:name", "1:Elvis", "0:id", "0:1",
+        "0:id", "0:2", "2:c", "2:9"), JSON, "/items/*/id", "/name",
+        "/a~1b/c", "/unknown/path");
+  }
+
+  /**
+   * Select the whole document
+   */
+  @Test
+  public void root() {
+    assertFilter(Arrays.asList("0:3", "0:1", "0:2", "0:4"), "[1,2]", "");
+    assertFilter(Arrays.asList("0:1"), "[1,2]", "/0");
+  }
+
+  /**
+   * Do not select anything
+   */
+  @Test
+  public void nothing() {
+    assertFilter(new ArrayList<String>(), JSON, "/unknown");
+    assertFilter(new ArrayList<String>(), JSON);
+  }
+
+  /**
+   * Make sure errors are reported
+   */
+  @Test
+  public void error() {
+    assertFilter(Arrays.asList("ERROR"), "{\"name\":[1,}", "/other");
+  }
+
+  /**
+   * Test if invalid paths are rejected
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidPath() {
+    new JsonPathFilter(new JsonParser(), "name");
+  }
+
+  /**
+   * Test if string values delivered in parts are filtered as a whole
+   */
+  @Test
+  public void stringParts() {
+    byte[] json = "[\"abcde\",\"fghij\",\"k\",{\"x\":\"lmnop\"}]"
+        .getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.setStringPartThreshold(2);
+    JsonPathFilter filter = new JsonPathFilter(parser, "/1", "/2", "/3/x");
+    filter.getFeeder().feed(json, 0, json.length);
+    filter.getFeeder().done();
+    List<String> result = new ArrayList<>();
+    int event;
+    while ((event = filter.nextEvent()) != JsonEvent.EOF) {
+      String prefix = (event == JsonEvent.VALUE_STRING_PART ? "P" : "");
+      result.add(prefix + filter.getCurrentPathIndex() + ":" +
+          parser.getCurrentString());
+    }
+    assertEquals(Arrays.asList("P0:fg", "P0:hi", "0:j", "1:k", "2:x",
+        "P2:lm", "P2:no", "2:p"), result);
+  }
+
+  /**
+   * Test if document boundaries of newline-delimited JSON are kept
+   */
+  @Test
+  public void lineDelimited() {
+    byte[] json = ("{\"a\":5,\"b\":[7]}\n[1,{\"a\":2}]\n" +
+        "{\"x\":{\"a\":3},\"a\":\"s\"}\n").getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser();
+    parser.setFraming(JsonFraming.LINE_DELIMITED);
+    JsonPathFilter filter = new JsonPathFilter(parser, "/a", "/1/a");
+    filter.getFeeder().feed(json, 0, json.length);
+    filter.getFeeder().done();
+    List<String> result = new ArrayList<>();
+    int event;
+    while ((event = filter.nextEvent()) != JsonEvent.EOF) {
+      if (event == JsonEvent.END_DOCUMENT) {
+        assertEquals(-1, filter.getCurrentPathIndex());
+        result.add("END");
+      } else if (event != JsonEvent.FIELD_NAME) {
+        result.add(filter.getCurrentPathIndex() + ":" +
+            parser.getCurrentString());
+      }
+    }
+    assertEquals(Arrays.asList("0:5", "END", "1:2", "END", "0:s", "END"),
+        result);
+  }
+}
@@ -0,0 +1,149 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link MappedFileJsonFeeder}
+ * @author Michel Kraemer
+ */
+public class MappedFileJsonFeederTest {
+  /**
+   * A folder for temporary files
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Parse the given file and collect all events and string values
+   * @param file the file to parse
+   * @param windowSize the size of the mapped windows
+   * @return the events and values
+   * @throws IOException if the file could not be read
+   */
+  private List<Object> parse(File file, int windowSize) throws IOException {
+    List<Object> result = new ArrayList<>();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      MappedFileJsonFeeder feeder = new MappedFileJsonFeeder(channel,
+          StandardCharsets.UTF_8, windowSize);
+      JsonParser parser = new JsonParser(feeder);
+      int event;
+      do {
+        while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+          feeder.feedNextWindow();
+        }
+        result.add(event);
+        if (event == JsonEvent.VALUE_STRING ||
+            event == JsonEvent.FIELD_NAME) {
+          result.add(parser.getCurrentString());
+        }
+      } while (event != JsonEvent.EOF && event != JsonEvent.ERROR);
+      assertEquals(file.length(), feeder.getMappedByteCount());
+    }
+    return result;
+  }
+
+  /**
+   * Test if a file is parsed the same way regardless of the window size
+   * @throws IOException if the file could not be written or read
+   */
+  @Test
+  public void windows() throws IOException {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 200; ++i) {
+      if (i > 0) {
+        json.append(",");
+      }
+      json.append("{\"name\":\"Bj\u0153rn \u20ac\ud83d\ude00\",\"i\":" + i + "}");
+    }
+    json.append("]");
+    File file = folder.newFile();
+    FileUtils.writeStringToFile(file, json.toString(), StandardCharsets.UTF_8);
+
+    List<Object> expected = parse(file, Integer.MAX_VALUE);
+    assertEquals(1 + 200 * 9 + 2, expected.size());
+    assertEquals(JsonEvent.EOF, expected.get(expected.size() - 1));
+    for (int windowSize = 1; windowSize <= 9; ++windowSize) {
+      assertEquals(expected, parse(file, windowSize));
+    }
+  }
+
+  /**
+   * Test if an empty file produces an error
+   * @throws IOException if the file could not be written or read
+   */
+  @Test
+  public void emptyFile() throws IOException {
+    File file = folder.newFile();
+    List<Object> events = parse(file, 16);
+    assertEquals(1, events.size());
+    assertEquals(JsonEvent.ERROR, events.get(0));
+  }
+
+  /**
+   * Test that {@link MappedFileJsonFeeder#feedNextWindow()} returns false
+   * after the whole file has been fed
+   * @throws IOException if the file could not be written or read
+   */
+  @Test
+  public void feedNextWindow() throws IOException {
+    File file = folder.newFile();
+    FileUtils.writeStringToFile(file, "[1,2]", StandardCharsets.UTF_8);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      MappedFileJsonFeeder feeder = new MappedFileJsonFeeder(channel,
+          StandardCharsets.UTF_8, 3);
+      assertTrue(feeder.feedNextWindow());
+      assertTrue(feeder.isFull());
+      assertTrue(feeder.hasInput());
+      for (int i = 0; i < 3; ++i) {
+        feeder.nextInput();
+      }
+      assertTrue(feeder.feedNextWindow());
+      assertFalse(feeder.isDone());
+      feeder.nextInput();
+      feeder.nextInput();
+      assertTrue(feeder.isDone());
+      assertFalse(feeder.feedNextWindow());
+    }
+  }
+}
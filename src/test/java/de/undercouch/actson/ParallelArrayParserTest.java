@@ -0,0 +1,241 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link ParallelArrayParser}
+ * @author Michel Kraemer
+ */
+public class ParallelArrayParserTest extends ParallelParserTestBase {
+  /**
+   * Parse a JSON text with a {@link ParallelArrayParser}
+   * @param json the JSON text
+   * @param chunkSize the chunk size
+   * @return the events
+   */
+  private static List<String> parseParallel(byte[] json, int chunkSize) {
+    ParallelArrayParser parser = new ParallelArrayParser(json);
+    parser.setChunkSize(chunkSize);
+    final List<String> result = new ArrayList<>();
+    parser.parse(pool, new JsonEventBatchHandler() {
+      @Override
+      public void handle(JsonEventBatch batch) {
+        toStrings(batch, result);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Make sure the parallel parser produces the same events as a single one
+   * @param json the JSON text
+   * @param chunkSize the chunk size
+   */
+  private static void assertSameEvents(String json, int chunkSize) {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    assertEquals(parseSequential(bytes), parseParallel(bytes, chunkSize));
+  }
+
+  /**
+   * Generate a random value
+   * @param rnd a random number generator
+   * @param depth the current depth
+   * @param sb the string builder receiving the value
+   */
+  private static void randomValue(Random rnd, int depth, StringBuilder sb) {
+    int t = rnd.nextInt(depth > 3 ? 4 : 6);
+    switch (t) {
+    case 0:
+      sb.append(rnd.nextInt(1000));
+      break;
+    case 1:
+      sb.append(rnd.nextBoolean() ? "true" : "-1.5e3");
+      break;
+    case 2:
+      sb.append(rnd.nextBoolean() ? "\"a,{\\\"b\\\":[1,{\"" : "\"\u00e4,{\"");
+      break;
+    case 3:
+      sb.append("null");
+      break;
+    case 4: {
+      sb.append("{");
+      int n = rnd.nextInt(4);
+      for (int i = 0; i < n; ++i) {
+        if (i > 0) {
+          sb.append(",");
+        }
+        sb.append("\"k").append(i).append("\": ");
+        randomValue(rnd, depth + 1, sb);
+      }
+      sb.append("}");
+      break;
+    }
+    default: {
+      sb.append("[");
+      int n = rnd.nextInt(4);
+      for (int i = 0; i < n; ++i) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        randomValue(rnd, depth + 1, sb);
+      }
+      sb.append("]");
+      break;
+    }
+    }
+  }
+
+  /**
+   * Generate an array of random objects
+   * @param rnd a random number generator
+   * @param n the number of objects
+   * @return the JSON text
+   */
+  private static String randomArray(Random rnd, int n) {
+    StringBuilder sb = new StringBuilder(" [\n");
+    for (int i = 0; i < n; ++i) {
+      if (i > 0) {
+        sb.append(",\n ");
+      }
+      sb.append("{\"id\":").append(i).append(",\"v\":");
+      randomValue(rnd, 1, sb);
+      sb.append("}");
+    }
+    sb.append("\n] ");
+    return sb.toString();
+  }
+
+  /**
+   * Test if a large array of random objects is parsed correctly
+   */
+  @Test
+  public void randomArrays() {
+    Random rnd = new Random(1);
+    for (int i = 0; i < 50; ++i) {
+      String json = randomArray(rnd, 200);
+      assertSameEvents(json, 1 + rnd.nextInt(500));
+    }
+    assertSameEvents(randomArray(rnd, 20000), 4096);
+  }
+
+  /**
+   * Test if errors are reported at the right position
+   */
+  @Test
+  public void errors() {
+    Random rnd = new Random(2);
+    String[] garbage = { ",", "]", "}", "[", "\"", "{", "x", ",,", ":" };
+    for (int i = 0; i < 200; ++i) {
+      String json = randomArray(rnd, 50);
+      int pos = rnd.nextInt(json.length());
+      json = json.substring(0, pos) + garbage[rnd.nextInt(garbage.length)] +
+          json.substring(pos);
+      assertSameEvents(json, 1 + rnd.nextInt(100));
+    }
+
+    // truncated arrays
+    for (int i = 0; i < 50; ++i) {
+      String json = randomArray(rnd, 50);
+      assertSameEvents(json.substring(0, rnd.nextInt(json.length())),
+          1 + rnd.nextInt(100));
+    }
+
+    // trailing values
+    assertSameEvents("[{\"a\":1},{\"b\":2}],{\"c\":3}", 1);
+    assertSameEvents("[{\"a\":1},{\"b\":2}] {\"c\":3}", 1);
+    assertSameEvents("[1,2,3,]", 1);
+  }
+
+  /**
+   * Test if JSON texts that are not arrays are parsed correctly
+   */
+  @Test
+  public void notArrays() {
+    assertSameEvents("", 1);
+    assertSameEvents("[]", 1);
+    assertSameEvents("[ ]", 1);
+    assertSameEvents("{\"a\":[{\"b\":1},{\"b\":2},{\"b\":3}]}", 1);
+    assertSameEvents("\"a,{\"", 1);
+    assertSameEvents("42", 1);
+    assertSameEvents("[1,2,3,4,5,6,7,8,9]", 1);
+    assertSameEvents("[[1],[2],[3,[4]],[5]]", 1);
+  }
+
+  /**
+   * Test if the test files are parsed correctly
+   * @throws IOException if one of the test files could not be read
+   */
+  @Test
+  public void testFiles() throws IOException {
+    for (int i = 1; i <= 3; ++i) {
+      URL u = getClass().getResource("pass" + i + ".txt");
+      byte[] json = IOUtils.toByteArray(u);
+      assertEquals(parseSequential(json), parseParallel(json, 16));
+    }
+    for (int i = 2; i <= 34; ++i) {
+      URL u = getClass().getResource("fail" + i + ".txt");
+      byte[] json = IOUtils.toByteArray(u);
+      assertEquals(parseSequential(json), parseParallel(json, 1));
+    }
+  }
+
+  /**
+   * Test if a direct buffer can be parsed
+   */
+  @Test
+  public void directBuffer() {
+    byte[] json = randomArray(new Random(3), 1000)
+        .getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buf = ByteBuffer.allocateDirect(json.length + 10);
+    buf.position(5);
+    buf.put(json);
+    buf.flip();
+    buf.position(5);
+    ParallelArrayParser parser = new ParallelArrayParser(buf);
+    parser.setChunkSize(1000);
+    final List<String> result = new ArrayList<>();
+    parser.parse(new JsonEventBatchHandler() {
+      @Override
+      public void handle(JsonEventBatch batch) {
+        toStrings(batch, result);
+      }
+    });
+    assertEquals(parseSequential(json), result);
+    assertEquals(5, buf.position());
+  }
+}
@@ -0,0 +1,258 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ParallelLineParser}
+ * @author Michel Kraemer
+ */
+public class ParallelLineParserTest extends ParallelParserTestBase {
+  /**
+   * A folder for temporary files
+   */
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Parse newline-delimited JSON with a {@link ParallelLineParser}
+   * @param parser the parser
+   * @return the events
+   * @throws IOException if the input could not be read
+   */
+  private static List<String> parseParallel(ParallelLineParser parser)
+      throws IOException {
+    final List<String> result = new ArrayList<>();
+    parser.parse(pool, new JsonEventBatchHandler() {
+      @Override
+      public void handle(JsonEventBatch batch) {
+        toStrings(batch, result);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Parse newline-delimited JSON with a {@link ParallelLineParser}
+   * @param json the JSON text
+   * @param blockSize the block size
+   * @param ordered true if the events should be delivered in input order
+   * @return the events
+   * @throws IOException if the input could not be read
+   */
+  private static List<String> parseParallel(byte[] json, int blockSize,
+      boolean ordered) throws IOException {
+    ParallelLineParser parser = new ParallelLineParser(
+        Channels.newChannel(new ByteArrayInputStream(json)));
+    parser.setBlockSize(blockSize);
+    parser.setOrdered(ordered);
+    return parseParallel(parser);
+  }
+
+  /**
+   * Split a list of events into documents and sort them
+   * @param events the events
+   * @return the sorted documents
+   */
+  private static List<String> sortedDocuments(List<String> events) {
+    List<String> result = new ArrayList<>();
+    StringBuilder doc = new StringBuilder();
+    for (String e : events) {
+      doc.append(e).append(' ');
+      if (e.startsWith(JsonEvent.END_DOCUMENT + ":")) {
+        result.add(doc.toString());
+        doc.setLength(0);
+      }
+    }
+    result.add(doc.toString());
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * Generate random newline-delimited JSON
+   * @param rnd a random number generator
+   * @param n the number of lines
+   * @return the JSON text
+   */
+  private static String randomLines(Random rnd, int n) {
+    String[] values = { "{\"id\":%d,\"name\":\"\u00e4%d\"}", "[%d,%d]",
+        "%d", "\"%d-%d\"", "{\"a\":[{\"b\":%d},{\"c\":%d.5}]}", "" };
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; ++i) {
+      sb.append(String.format(values[rnd.nextInt(values.length)], i, i));
+      sb.append(rnd.nextInt(10) == 0 ? "\r\n" : "\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Test if events are delivered in input order
+   * @throws IOException if the input could not be read
+   */
+  @Test
+  public void ordered() throws IOException {
+    Random rnd = new Random(1);
+    for (int i = 0; i < 50; ++i) {
+      byte[] json = randomLines(rnd, 300).getBytes(StandardCharsets.UTF_8);
+      assertEquals(parseSequential(json, JsonFraming.LINE_DELIMITED),
+          parseParallel(json, 1 + rnd.nextInt(500), true));
+    }
+  }
+
+  /**
+   * Test if all events are delivered in unordered mode
+   * @throws IOException if the input could not be read
+   */
+  @Test
+  public void unordered() throws IOException {
+    Random rnd = new Random(2);
+    for (int i = 0; i < 50; ++i) {
+      byte[] json = randomLines(rnd, 300).getBytes(StandardCharsets.UTF_8);
+      List<String> events = parseParallel(json, 1 + rnd.nextInt(500), false);
+      assertEquals(JsonEvent.EOF + ":", events.get(events.size() - 1));
+      assertEquals(sortedDocuments(parseSequential(json,
+          JsonFraming.LINE_DELIMITED)), sortedDocuments(events));
+    }
+  }
+
+  /**
+   * Test if the last line does not need a line break
+   * @throws IOException if the input could not be read
+   */
+  @Test
+  public void lastLine() throws IOException {
+    byte[] json = "{\"a\":1}\n[2]\n3".getBytes(StandardCharsets.UTF_8);
+    assertEquals(parseSequential(json, JsonFraming.LINE_DELIMITED),
+        parseParallel(json, 4, true));
+    json = "".getBytes(StandardCharsets.UTF_8);
+    assertEquals(parseSequential(json, JsonFraming.LINE_DELIMITED),
+        parseParallel(json, 4, true));
+  }
+
+  /**
+   * Test if parsing stops at the first error
+   * @throws IOException if the input could not be read
+   */
+  @Test
+  public void errors() throws IOException {
+    Random rnd = new Random(3);
+    String[] garbage = { ",", "]", "}", "[", "\"", "{", "x", ":", " 1" };
+    for (int i = 0; i < 200; ++i) {
+      String json = randomLines(rnd, 50);
+      int pos = rnd.nextInt(json.length());
+      json = json.substring(0, pos) + garbage[rnd.nextInt(garbage.length)] +
+          json.substring(pos);
+      byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+      assertEquals(parseSequential(bytes, JsonFraming.LINE_DELIMITED),
+          parseParallel(bytes, 1 + rnd.nextInt(100), true));
+    }
+
+    // values must not span multiple lines
+    byte[] json = "[1,\n2]\n".getBytes(StandardCharsets.UTF_8);
+    List<String> events = parseParallel(json, 1, true);
+    assertEquals(JsonEvent.ERROR + ":", events.get(events.size() - 1));
+  }
+
+  /**
+   * Test if the blocks after an error are not parsed to the end
+   * @throws IOException if the input could not be read
+   * @throws InterruptedException if the test was interrupted
+   */
+  @Test
+  public void abortAfterError() throws IOException, InterruptedException {
+    String lines = randomLines(new Random(5), 400000);
+    byte[] valid = lines.getBytes(StandardCharsets.UTF_8);
+    byte[] invalid = ("x\n" + lines).getBytes(StandardCharsets.UTF_8);
+    int blockSize = valid.length / 4 + 1;
+    JsonEventBatchHandler ignore = new JsonEventBatchHandler() {
+      @Override
+      public void handle(JsonEventBatch batch) {
+        // ignore events
+      }
+    };
+
+    // measure how long it takes to parse all blocks
+    long parseTime = Long.MAX_VALUE;
+    for (int i = 0; i < 3; ++i) {
+      ParallelLineParser parser = new ParallelLineParser(
+          Channels.newChannel(new ByteArrayInputStream(valid)));
+      parser.setBlockSize(blockSize);
+      long start = System.nanoTime();
+      parser.parse(pool, ignore);
+      parseTime = Math.min(parseTime, System.nanoTime() - start);
+    }
+
+    List<String> events = parseParallel(invalid, blockSize, true);
+    long start = System.nanoTime();
+    assertEquals(JsonEvent.ERROR + ":", events.get(events.size() - 1));
+    while (!pool.isQuiescent() &&
+        System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+      Thread.sleep(1);
+    }
+    long busyTime = System.nanoTime() - start;
+    assertTrue("The pool was busy for " + busyTime + " ns after the " +
+        "error. Parsing all blocks takes " + parseTime + " ns.",
+        busyTime < parseTime / 2);
+  }
+
+  /**
+   * Test if a file can be parsed
+   * @throws IOException if the file could not be read
+   */
+  @Test
+  public void file() throws IOException {
+    String json = randomLines(new Random(4), 10000);
+    File file = folder.newFile();
+    FileUtils.writeStringToFile(file, json, StandardCharsets.UTF_8);
+    try (FileChannel channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.READ)) {
+      ParallelLineParser parser = new ParallelLineParser(channel);
+      parser.setBlockSize(4096);
+      assertEquals(parseSequential(json.getBytes(StandardCharsets.UTF_8),
+          JsonFraming.LINE_DELIMITED), parseParallel(parser));
+    }
+  }
+}
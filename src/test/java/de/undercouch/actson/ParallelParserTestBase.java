@@ -0,0 +1,101 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package de.undercouch.actson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * Common code for the tests of {@link ParallelArrayParser} and
+ * {@link ParallelLineParser}
+ * @author Michel Kraemer
+ */
+public abstract class ParallelParserTestBase {
+  /**
+   * The pool the parsers run in
+   */
+  protected static ForkJoinPool pool;
+
+  /**
+   * Create a pool for all tests
+   */
+  @BeforeClass
+  public static void setUpClass() {
+    pool = new ForkJoinPool(4);
+  }
+
+  /**
+   * Shut down the pool
+   */
+  @AfterClass
+  public static void tearDownClass() {
+    pool.shutdown();
+  }
+
+  /**
+   * Convert all events and values of a batch to strings
+   * @param batch the batch
+   * @param result a list receiving the strings
+   */
+  protected static void toStrings(JsonEventBatch batch, List<String> result) {
+    for (int i = 0; i < batch.size(); ++i) {
+      result.add(batch.getEvent(i) + ":" + batch.getString(i));
+    }
+  }
+
+  /**
+   * Parse a JSON text with a single parser
+   * @param json the JSON text
+   * @return the events
+   */
+  protected static List<String> parseSequential(byte[] json) {
+    return parseSequential(json, JsonFraming.SINGLE);
+  }
+
+  /**
+   * Parse a JSON text with a single parser
+   * @param json the JSON text
+   * @param framing the framing of the JSON text (see {@link JsonFraming})
+   * @return the events
+   */
+  protected static List<String> parseSequential(byte[] json, int framing) {
+    JsonParser parser = new JsonParser(new Utf8JsonFeeder(json.length));
+    parser.getFeeder().feed(json, 0, json.length);
+    parser.getFeeder().done();
+    parser.setFraming(framing);
+    JsonEventBatch batch = new JsonEventBatch(100);
+    List<String> result = new ArrayList<>();
+    int last;
+    do {
+      int n = parser.nextEvents(batch);
+      toStrings(batch, result);
+      last = batch.getEvent(n - 1);
+    } while (last != JsonEvent.EOF && last != JsonEvent.ERROR);
+    return result;
+  }
+}
@@ -123,10 +123,25 @@ public class PrettyPrinter {
       result.append(",\n");
       indent();
     }
-    result.append("\"" + name + "\": ");
+    result.append("\"" + escape(name) + "\": ");
     elementCounts.push(elementCounts.pop() + 1);
   }
 
+  private static String escape(String str) {
+    StringBuilder sb = new StringBuilder(str.length());
+    for (int i = 0; i < str.length(); ++i) {
+      char c = str.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int)c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
   private void onValue() {
     if (types.peek() == Type.ARRAY) {
       if (elementCounts.peek() > 0) {
@@ -138,7 +153,7 @@ public class PrettyPrinter {
 
   private void onValue(String value) {
     onValue();
-    result.append("\"" + value + "\"");
+    result.append("\"" + escape(value) + "\"");
   }
 
   private void onValue(int value) {
@@ -0,0 +1,175 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RingBufferJsonFeeder}
+ * @author Michel Kraemer
+ */
+public class RingBufferJsonFeederTest {
+  private RingBufferJsonFeeder feeder = new RingBufferJsonFeeder(
+      StandardCharsets.UTF_8, 16);
+
+  /**
+   * Test if the feeder is empty at the beginning
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void emptyAtBeginning() throws CharacterCodingException {
+    assertFalse(feeder.hasInput());
+    assertFalse(feeder.isFull());
+    assertFalse(feeder.isDone());
+  }
+
+  /**
+   * Test if the capacity is rounded up to a power of two
+   */
+  @Test
+  public void capacity() {
+    assertEquals(16, feeder.getCapacity());
+    assertEquals(32, new RingBufferJsonFeeder(
+        StandardCharsets.UTF_8, 17).getCapacity());
+    assertEquals(1, new RingBufferJsonFeeder(
+        StandardCharsets.UTF_8, 1).getCapacity());
+  }
+
+  /**
+   * Test if {@link RingBufferJsonFeeder#isFull()} reflects the true free
+   * space of the buffer
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void isFull() throws CharacterCodingException {
+    byte[] buf = "abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.UTF_8);
+    assertEquals(10, feeder.feed(buf, 0, 10));
+    assertEquals(6, feeder.feed(buf, 10, 16));
+    assertTrue(feeder.isFull());
+    assertEquals(0, feeder.feed(buf));
+
+    // decoding frees the whole buffer without moving any bytes
+    assertEquals('a', feeder.nextInput());
+    assertFalse(feeder.isFull());
+    assertEquals(16, feeder.feed(buf));
+    assertTrue(feeder.isFull());
+    for (int i = 1; i < 16; ++i) {
+      assertEquals('a' + i, feeder.nextInput());
+    }
+    for (int i = 0; i < 16; ++i) {
+      assertEquals('a' + i, feeder.nextInput());
+    }
+    assertFalse(feeder.hasInput());
+  }
+
+  /**
+   * Test if the feeder accepts direct byte buffers and wraps around the end
+   * of the ring buffer
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void feedByteBuffer() throws CharacterCodingException {
+    ByteBuffer buf = ByteBuffer.allocateDirect(40);
+    for (int i = 0; i < 40; ++i) {
+      buf.put((byte)('a' + (i % 26)));
+    }
+    buf.flip();
+
+    int j = 0;
+    while (buf.hasRemaining() || feeder.hasInput()) {
+      feeder.feed(buf);
+      for (int i = 0; i < 5 && feeder.hasInput(); ++i) {
+        assertEquals('a' + (j % 26), feeder.nextInput());
+        ++j;
+      }
+    }
+    assertEquals(40, j);
+  }
+
+  /**
+   * Test if characters wrapping around the end of the ring buffer are
+   * decoded correctly regardless of how the input is split
+   * @throws CharacterCodingException if something goes wrong
+   */
+  @Test
+  public void wrappingCharacters() throws CharacterCodingException {
+    String expected = "a\u0153b\u20acc\ud83d\ude00d\u0153\u0153\u20ac" +
+        "e\u20ac\u20acf\ud83d\ude00\ud83d\ude00";
+    byte[] input = expected.getBytes(StandardCharsets.UTF_8);
+    for (int chunk = 1; chunk <= 16; ++chunk) {
+      for (int consume = 1; consume <= 5; ++consume) {
+        feeder = new RingBufferJsonFeeder(StandardCharsets.UTF_8, 16);
+        StringBuilder actual = new StringBuilder();
+        int i = 0;
+        while (i < input.length || feeder.hasInput()) {
+          i += feeder.feed(input, i, Math.min(chunk, input.length - i));
+          for (int k = 0; k < consume && feeder.hasInput(); ++k) {
+            actual.append(feeder.nextInput());
+          }
+        }
+        feeder.done();
+        assertTrue(feeder.isDone());
+        assertEquals(expected, actual.toString());
+      }
+    }
+  }
+
+  /**
+   * Test if the feeder can be used with the parser
+   */
+  @Test
+  public void parse() {
+    byte[] json = "{\"name\":\"Bj\u0153rn\",\"n\":[1,2.5,\"\u20ac\u20ac\"]}"
+        .getBytes(StandardCharsets.UTF_8);
+    JsonParser parser = new JsonParser(new RingBufferJsonFeeder(
+        StandardCharsets.UTF_8, 4));
+    int i = 0;
+    int event;
+    int count = 0;
+    do {
+      while ((event = parser.nextEvent()) == JsonEvent.NEED_MORE_INPUT) {
+        i += parser.getFeeder().feed(json, i, json.length - i);
+        if (i == json.length) {
+          parser.getFeeder().done();
+        }
+      }
+      assertFalse(event == JsonEvent.ERROR);
+      if (event == JsonEvent.VALUE_STRING && count++ == 0) {
+        assertEquals("Bj\u0153rn", parser.getCurrentString());
+      } else if (event == JsonEvent.VALUE_STRING) {
+        assertEquals("\u20ac\u20ac", parser.getCurrentString());
+      }
+    } while (event != JsonEvent.EOF);
+    assertEquals(2, count);
+  }
+}
@@ -0,0 +1,86 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link SymbolTable}
+ * @author Michel Kraemer
+ */
+public class SymbolTableTest {
+  private static String lookup(SymbolTable table, String s) {
+    return table.lookup(new StringBuilder(s), s.hashCode());
+  }
+
+  /**
+   * Test if the same instance is returned for equal strings
+   */
+  @Test
+  public void canonical() {
+    SymbolTable table = new SymbolTable(16);
+    String a = lookup(table, "a");
+    String b = lookup(table, "b");
+    assertEquals("a", a);
+    assertEquals("b", b);
+    assertSame(a, lookup(table, "a"));
+    assertSame(b, lookup(table, "b"));
+    assertEquals(2, table.size());
+  }
+
+  /**
+   * Test if strings with the same hash are distinguished
+   */
+  @Test
+  public void collisions() {
+    SymbolTable table = new SymbolTable(16);
+    // "Aa" and "BB" have the same hash code
+    String aa = lookup(table, "Aa");
+    String bb = lookup(table, "BB");
+    assertEquals("Aa", aa);
+    assertEquals("BB", bb);
+    assertSame(aa, lookup(table, "Aa"));
+    assertSame(bb, lookup(table, "BB"));
+  }
+
+  /**
+   * Test if the table does not grow beyond its maximum size
+   */
+  @Test
+  public void bounded() {
+    SymbolTable table = new SymbolTable(8);
+    for (int i = 0; i < 100; ++i) {
+      assertEquals("k" + i, lookup(table, "k" + i));
+    }
+    assertEquals(8, table.size());
+    assertSame(lookup(table, "k0"), lookup(table, "k0"));
+    assertNotSame(lookup(table, "k50"), lookup(table, "k50"));
+    assertEquals("k50", lookup(table, "k50"));
+  }
+}
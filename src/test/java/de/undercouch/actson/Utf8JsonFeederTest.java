@@ -0,0 +1,125 @@
+// MIT License
+//
+// Copyright (c) 2016 Michel Kraemer
+//
+// Permission is hereby granted, free of charge, to any person obtaining
+// a copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to
+// permit persons to whom the Software is furnished to do so, subject to
+// the following conditions:
+//
+// The above copyright notice and this permission notice shall be
+// included in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+// EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+// NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+// LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+// OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+// WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+package de.undercouch.actson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Utf8JsonFeeder}
+ * @author Michel Kraemer
+ */
+public class Utf8JsonFeederTest {
+  private Utf8JsonFeeder feeder = new Utf8JsonFeeder(16);
+
+  /**
+   * Test if the feeder is empty at the beginning
+   */
+  @Test
+  public void emptyAtBeginning() {
+    assertFalse(feeder.hasInput());
+    assertFalse(feeder.isFull());
+    assertFalse(feeder.isDone());
+  }
+
+  /**
+   * Test if the {@link Utf8JsonFeeder#isFull()} method works correctly
+   */
+  @Test
+  public void isFull() {
+    for (int i = 0; i < 16; ++i) {
+      assertFalse(feeder.isFull());
+      feeder.feed((byte)('a' + i));
+    }
+    assertTrue(feeder.isFull());
+    feeder.nextInput();
+    assertFalse(feeder.isFull());
+    feeder.feed((byte)'z');
+    assertTrue(feeder.isFull());
+  }
+
+  /**
+   * Test if the feeder throws an exception if it is full
+   */
+  @Test(expected = IllegalStateException.class)
+  public void tooFull() {
+    for (int i = 0; i < 17; ++i) {
+      feeder.feed((byte)('a' + i));
+    }
+  }
+
+  /**
+   * Test if the feeder accepts byte arrays and keeps unconsumed input
+   * when it makes room for new bytes
+   */
+  @Test
+  public void feedBuf() {
+    byte[] buf = "abcdefghij".getBytes(StandardCharsets.UTF_8);
+    assertEquals(10, feeder.feed(buf));
+    for (int i = 0; i < 8; ++i) {
+      assertEquals('a' + i, feeder.nextInput());
+    }
+    assertEquals(10, feeder.feed(buf));
+    assertEquals(4, feeder.feed(buf, 0, 10));
+    assertTrue(feeder.isFull());
+    assertEquals('i', feeder.nextInput());
+    assertEquals('j', feeder.nextInput());
+    for (int i = 0; i < 10; ++i) {
+      assertEquals('a' + i, feeder.nextInput());
+    }
+    for (int i = 0; i < 4; ++i) {
+      assertEquals('a' + i, feeder.nextInput());
+    }
+    assertFalse(feeder.hasInput());
+  }
+
+  /**
+   * Test if the feeder returns raw bytes instead of decoded characters
+   */
+  @Test
+  public void rawBytes() {
+    feeder.feed("\u0153".getBytes(StandardCharsets.UTF_8));
+    assertEquals(197, feeder.nextInput());
+    assertEquals(147, feeder.nextInput());
+    assertFalse(feeder.hasInput());
+  }
+
+  /**
+   * Test if the {@link Utf8JsonFeeder#isDone()} method works correctly
+   */
+  @Test
+  public void isDone() {
+    assertFalse(feeder.isDone());
+    feeder.feed((byte)'a');
+    feeder.done();
+    assertFalse(feeder.isDone());
+    feeder.nextInput();
+    assertTrue(feeder.isDone());
+  }
+}